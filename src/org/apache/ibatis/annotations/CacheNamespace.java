@@ -20,6 +20,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.apache.ibatis.cache.codec.JdkCacheCodec;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 
@@ -40,5 +41,7 @@ public @interface CacheNamespace {
   boolean readWrite() default true;
   
   boolean blocking() default false;
+
+  Class<? extends org.apache.ibatis.cache.CacheCodec> codec() default JdkCacheCodec.class;
   
 }
@@ -31,6 +31,10 @@ import org.apache.ibatis.mapping.StatementType;
 public @interface Options {
   boolean useCache() default true;
 
+  long cacheTimeToLive() default 0;
+
+  boolean cacheRefreshAhead() default false;
+
   boolean flushCache() default false;
 
   ResultSetType resultSetType() default ResultSetType.FORWARD_ONLY;
@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder;
 
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.ParameterMapping;
@@ -46,4 +47,8 @@ public class StaticSqlSource implements SqlSource {
     return new BoundSql(configuration, sql, parameterMappings, parameterObject);
   }
 
+  public BoundSql getBoundSql(Object parameterObject, Map<String, Object> additionalParameters) {
+    return new BoundSql(configuration, sql, parameterMappings, parameterObject, additionalParameters);
+  }
+
 }
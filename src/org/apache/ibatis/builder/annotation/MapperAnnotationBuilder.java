@@ -174,7 +174,7 @@ public class MapperAnnotationBuilder {
     if (cacheDomain != null) {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), null);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), null, cacheDomain.codec());
     }
   }
 
@@ -268,6 +268,8 @@ public class MapperAnnotationBuilder {
       boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
       boolean flushCache = !isSelect;
       boolean useCache = isSelect;
+      long cacheTimeToLive = 0;
+      boolean cacheRefreshAhead = false;
 
       KeyGenerator keyGenerator;
       String keyProperty = "id";
@@ -292,6 +294,8 @@ public class MapperAnnotationBuilder {
       if (options != null) {
         flushCache = options.flushCache();
         useCache = options.useCache();
+        cacheTimeToLive = options.cacheTimeToLive();
+        cacheRefreshAhead = options.cacheRefreshAhead();
         fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
         timeout = options.timeout() > -1 ? options.timeout() : null;
         statementType = options.statementType();
@@ -338,7 +342,14 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          null);
+          null,
+          // BatchFlushPolicy
+          null,
+          true,
+          // Tables
+          null,
+          cacheTimeToLive,
+          cacheRefreshAhead);
     }
   }
   
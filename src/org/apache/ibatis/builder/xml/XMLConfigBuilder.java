@@ -24,8 +24,13 @@ import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.Weigher;
 import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.executor.BatchFlushPolicy;
+import org.apache.ibatis.executor.DefaultMultiRowInsertDialect;
 import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.MultiRowInsertDialect;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
@@ -319,9 +324,12 @@ public class XMLConfigBuilder extends BaseBuilder {
   private void settingsElement(Properties props) throws Exception {
     configuration.setAutoMappingBehavior(AutoMappingBehavior.valueOf(props.getProperty("autoMappingBehavior", "PARTIAL")));//自动映射行为
     configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));//二级缓存
+    configuration.setCacheMaximumBytes(longValueOf(props.getProperty("cacheMaximumBytes"), 0L));//MEMORY淘汰策略的二级缓存共享的估算字节上限
+    configuration.setCacheTableInvalidation(booleanValueOf(props.getProperty("cacheTableInvalidation"), false));//二级缓存是否按表失效
     configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));//代理工厂
     configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));//懒加载
     configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), true));//懒加载时，调用某属性是否加载所有属性，和lazyLoadingEnabled同时配置
+    configuration.setLazyLoadSiblings(booleanValueOf(props.getProperty("lazyLoadSiblings"), false));//懒加载时，是否同时加载同一结果集中其它对象的同一属性
     configuration.setMultipleResultSetsEnabled(booleanValueOf(props.getProperty("multipleResultSetsEnabled"), true));//是否允许单一语句返回多结果集（需要兼容驱动）。
     configuration.setUseColumnLabel(booleanValueOf(props.getProperty("useColumnLabel"), true));//是否使用列标签(别名)代替列名(pojo的属性名)
     configuration.setUseGeneratedKeys(booleanValueOf(props.getProperty("useGeneratedKeys"), false));//是否使用JDBC的getGenereatedKeys方法获取主键并赋值到keyProperty设置的属性中
@@ -331,11 +339,32 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));//是否将列名按驼峰命名转换
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));//是否允许在嵌套语句中使用分页(行分界)，默认不允许
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));//本地缓存机制,默认为session(会话中)
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), 0));//本地缓存最多保留的查询结果数
+    configuration.setLocalCacheMaximumWeight(longValueOf(props.getProperty("localCacheMaximumWeight"), 0L));//本地缓存的总权重上限
+    @SuppressWarnings("unchecked")
+    Class<? extends Weigher> localCacheWeigher = (Class<? extends Weigher>) resolveClass(props.getProperty("localCacheWeigher"));
+    configuration.setLocalCacheWeigher(localCacheWeigher);//计算本地缓存条目权重的Weigher
+    @SuppressWarnings("unchecked")
+    Class<? extends Cache> localCacheImpl = (Class<? extends Cache>) resolveClass(props.getProperty("localCacheImpl"));
+    configuration.setLocalCacheImpl(localCacheImpl);//本地缓存的实现类
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));//当没有为参数提供特定的 JDBC 类型时，为空值指定 JDBC 类型
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));//指定触发延迟加载的对象的方法(另有get，set ,is)
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));//允许在嵌套语句中使用分页（ResultHandler）(自定义的ResultMap)
     configuration.setDefaultScriptingLanguage(resolveClass(props.getProperty("defaultScriptingLanguage")));//指定动态 SQL生成 的默认语言
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));//resultType="map"时，是否将没有值的key放入map中
+    configuration.setUseCompiledRowMappers(booleanValueOf(props.getProperty("useCompiledRowMappers"), false));//是否将简单的结果映射编译为字节码
+    configuration.setBatchStatementGrouping(booleanValueOf(props.getProperty("batchStatementGrouping"), false));//BATCH执行器是否为每条不同的SQL保留一个PreparedStatement
+    configuration.setBatchFlushPolicy(new BatchFlushPolicy(integerValueOf(props.getProperty("batchFlushRows"), 0),
+        longValueOf(props.getProperty("batchFlushBytes"), 0L), longValueOf(props.getProperty("batchFlushInterval"), 0L),
+        booleanValueOf(props.getProperty("batchDiscardFlushedResults"), false)));//BATCH执行器自动提交批次的行数、估算字节数、毫秒间隔,以及是否丢弃已提交批次的结果
+    MultiRowInsertDialect multiRowInsertDialect = (MultiRowInsertDialect) createInstance(props.getProperty("multiRowInsertDialect"));
+    Integer multiRowInsertMaxParameters = integerValueOf(props.getProperty("multiRowInsertMaxParameters"), null);
+    if (multiRowInsertDialect == null && multiRowInsertMaxParameters != null) {
+      multiRowInsertDialect = new DefaultMultiRowInsertDialect(multiRowInsertMaxParameters);
+    }
+    configuration.setMultiRowInsertDialect(multiRowInsertDialect);//BATCH执行器合并单行INSERT的方言,只设置参数上限时使用默认方言
+    configuration.setForeachMaxBucketSize(integerValueOf(props.getProperty("foreachMaxBucketSize"), 1000));//bucketed="true"的foreach每条语句最多绑定的元素数
+    configuration.setDynamicSqlPlanCacheSize(integerValueOf(props.getProperty("dynamicSqlPlanCacheSize"), 0));//每个动态SQL按分支形态缓存的解析结果数量上限
     configuration.setLogPrefix(props.getProperty("logPrefix"));//指定 MyBatis 增加到日志名称的前缀
     configuration.setLogImpl(resolveClass(props.getProperty("logImpl")));//指定 MyBatis 所用日志的具体实现，未指定时将自动查找
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
@@ -20,6 +20,7 @@ import java.util.Locale;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.executor.BatchFlushPolicy;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -81,6 +82,10 @@ public class XMLStatementBuilder extends BaseBuilder {
     boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
     boolean flushCache = context.getBooleanAttribute("flushCache", !isSelect);
     boolean useCache = context.getBooleanAttribute("useCache", isSelect);
+    boolean useLocalCache = context.getBooleanAttribute("useLocalCache", true);
+    String tables = context.getStringAttribute("tables");
+    Long cacheTimeToLive = context.getLongAttribute("cacheTimeToLive", 0L);
+    boolean cacheRefreshAhead = context.getBooleanAttribute("cacheRefreshAhead", false);
     boolean resultOrdered = context.getBooleanAttribute("resultOrdered", false);
 
     // Include Fragments before parsing
@@ -106,10 +111,21 @@ public class XMLStatementBuilder extends BaseBuilder {
           ? new Jdbc3KeyGenerator() : new NoKeyGenerator();
     }
 
+    BatchFlushPolicy batchFlushPolicy = null;
+    Integer batchFlushRows = context.getIntAttribute("batchFlushRows");
+    Long batchFlushBytes = context.getLongAttribute("batchFlushBytes");
+    Long batchFlushInterval = context.getLongAttribute("batchFlushInterval");
+    if (batchFlushRows != null || batchFlushBytes != null || batchFlushInterval != null) {
+      batchFlushPolicy = new BatchFlushPolicy(batchFlushRows == null ? 0 : batchFlushRows,
+          batchFlushBytes == null ? 0 : batchFlushBytes, batchFlushInterval == null ? 0 : batchFlushInterval,
+          false);
+    }
+
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered, 
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, batchFlushPolicy, useLocalCache, tables,
+        cacheTimeToLive, cacheRefreshAhead);
   }
 
   private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
@@ -0,0 +1,38 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Turns cache values into bytes and back, for the caches that keep copies of their values.
+ * <p>
+ * Implementations must have a public no-arg constructor so they can be named in a cache codec attribute,
+ * and must be safe for concurrent use.
+ */
+public interface CacheCodec {
+
+  /**
+   * @param value The value to copy, may be null
+   * @return The bytes {@link #decode(byte[])} makes a copy of the value from
+   */
+  byte[] encode(Object value);
+
+  /**
+   * @param bytes Bytes returned by {@link #encode(Object)}
+   * @return A copy of the value
+   */
+  Object decode(byte[] bytes);
+
+}
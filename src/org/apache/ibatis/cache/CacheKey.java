@@ -17,32 +17,41 @@ package org.apache.ibatis.cache;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
+ * Key built from the components of a query or of a result row.
+ * <p>
+ * Components are kept in a flat array and folded into a 64-bit hash as they are added,
+ * so unequal keys almost never reach the element by element comparison.
+ * Clones share the array with their original until one of them is updated, which makes
+ * combining nested row keys cost a single array copy.
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -1439263546578313584L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final long DEFAULT_HASH = 0x2545F4914F6CDD1DL;
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+  private static final Object[] EMPTY = new Object[0];
 
-  private int multiplier;
+  private long hash;
   private int hashcode;
-  private long checksum;
   private int count;
-  private List<Object> updateList;
+  private Object[] components;
+  // true while the components array is also referenced by a clone
+  private transient boolean shared;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
+    this.hash = DEFAULT_HASH;
+    this.hashcode = (int) (hash ^ (hash >>> 32));
     this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.components = EMPTY;
   }
 
   public CacheKey(Object[] objects) {
@@ -51,7 +60,7 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
@@ -69,13 +78,14 @@ public class CacheKey implements Cloneable, Serializable {
   private void doUpdate(Object object) {
     int baseHashCode = object == null ? 1 : object.hashCode();
 
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
+    hash = (hash + mix(baseHashCode)) * MULTIPLIER;
+    hashcode = (int) (hash ^ (hash >>> 32));
 
-    updateList.add(object);
+    if (shared || count == components.length) {
+      components = Arrays.copyOf(components, Math.max(DEFAULT_CAPACITY, count == components.length ? count * 2 : components.length));
+      shared = false;
+    }
+    components[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -95,25 +105,23 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode) {
-      return false;
-    }
-    if (checksum != cacheKey.checksum) {
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (count != cacheKey.count) {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
+    // the leading components (statement id, result map id) are usually the same, so compare from the end
+    for (int i = count - 1; i >= 0; i--) {
+      Object thisObject = components[i];
+      Object thatObject = cacheKey.components[i];
       if (thisObject == null) {
         if (thatObject != null) {
           return false;
         }
       } else {
-        if (!thisObject.equals(thatObject)) {
+        if (thisObject != thatObject && !thisObject.equals(thatObject)) {
           return false;
         }
       }
@@ -128,9 +136,9 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (int i = 0; i < updateList.size(); i++) {
-      returnValue.append(':').append(updateList.get(i));
+    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(hash);
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(components[i]);
     }
 
     return returnValue.toString();
@@ -139,8 +147,17 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    if (count > 0) {
+      shared = true;
+      clonedCacheKey.shared = true;
+    }
     return clonedCacheKey;
   }
 
+  private static long mix(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return z ^ (z >>> 33);
+  }
+
 }
@@ -0,0 +1,28 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Reloads a cache entry from a background thread before it expires.
+ */
+public interface CacheRefresher {
+
+  /**
+   * @return the value to put in place of the current one, or null to let the current one expire
+   */
+  Object refresh() throws Exception;
+
+}
@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+
+/**
+ * A value put together with its own time to live and, optionally, the {@link CacheRefresher} that reloads it.
+ * The {@link org.apache.ibatis.cache.decorators.ExpiringCache} unwraps it and expires the entry on time; a cache
+ * without that decorator keeps it as is, and it is then checked when read back.
+ */
+public class ExpiringValue implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private Object value;
+  private long timeToLive;
+  private long createdAt;
+  private transient CacheRefresher refresher;
+
+  public ExpiringValue() {
+    // for codecs
+  }
+
+  /**
+   * @param timeToLive - milliseconds the value stays valid, 0 for the default of the cache
+   * @param refresher - reloads the value before it expires, or null
+   */
+  public ExpiringValue(Object value, long timeToLive, CacheRefresher refresher) {
+    this.value = value;
+    this.timeToLive = timeToLive;
+    this.refresher = refresher;
+    this.createdAt = System.currentTimeMillis();
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public CacheRefresher getRefresher() {
+    return refresher;
+  }
+
+  public boolean isExpired(long now) {
+    return timeToLive > 0 && now - createdAt >= timeToLive;
+  }
+
+}
@@ -0,0 +1,205 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Estimates the bytes retained by the key and the value of a cache entry, for a 64-bit JVM with compressed
+ * references. It is the default weigher of the {@link org.apache.ibatis.cache.decorators.MemoryBoundedCache}.
+ * <p>
+ * Beans are measured from their declared fields, found the way the {@link org.apache.ibatis.reflection.Reflector}
+ * finds them and read directly, so lazy loading proxies are not triggered. Strings and arrays are measured from
+ * their length, collections and maps from their size plus their elements. Objects of the JDK and of MyBatis itself
+ * (like the handler of a lazy loading proxy) only count for their own fields, except for the cache keys and the
+ * holders the caches wrap values in, which are walked like beans. An object reachable twice is counted once, and the
+ * walk stops after 100000 objects.
+ */
+public class RetainedSizeWeigher implements Weigher {
+
+  private static final int HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  // HashMap.Node and its slot in the table
+  private static final int MAP_ENTRY = 36;
+  private static final int MAX_OBJECTS = 100000;
+
+  private static final String[] OPAQUE_PACKAGES = { "java.", "javax.", "sun.", "com.sun.", "jdk.", "org.apache.ibatis.",
+      "javassist.", "net.sf.cglib." };
+
+  // the keys and the value holders of the caches themselves, what they hold is what weighs
+  private static final Class<?>[] WALKED_TYPES = { CacheKey.class, NullCacheKey.class, TableTaggedValue.class,
+      ExpiringValue.class };
+
+  private final ConcurrentMap<Class<?>, Layout> layouts = new ConcurrentHashMap<Class<?>, Layout>();
+
+  @Override
+  public int weigh(Object key, Object value) {
+    Map<Object, Object> visited = new IdentityHashMap<Object, Object>();
+    Deque<Object> pending = new ArrayDeque<Object>();
+    push(pending, value);
+    push(pending, key);
+    long size = 0;
+    while (!pending.isEmpty() && visited.size() < MAX_OBJECTS) {
+      Object object = pending.pop();
+      if (visited.put(object, object) == null) {
+        size += sizeOf(object, pending);
+      }
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  private long sizeOf(Object object, Deque<Object> pending) {
+    if (object instanceof Enum || object instanceof Class) {
+      // shared
+      return 0;
+    }
+    Class<?> type = object.getClass();
+    if (type == String.class) {
+      return align(HEADER + 12) + align(ARRAY_HEADER + 2L * ((String) object).length());
+    }
+    if (type.isArray()) {
+      int length = Array.getLength(object);
+      Class<?> componentType = type.getComponentType();
+      if (componentType.isPrimitive()) {
+        return align(ARRAY_HEADER + (long) length * sizeOfType(componentType));
+      }
+      for (Object element : (Object[]) object) {
+        push(pending, element);
+      }
+      return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+    Layout layout = layout(type);
+    long size = layout.size;
+    if (object instanceof Collection) {
+      Collection<?> collection = (Collection<?>) object;
+      size += align(ARRAY_HEADER + (long) collection.size() * (object instanceof RandomAccess ? REFERENCE : MAP_ENTRY));
+      for (Object element : collection) {
+        push(pending, element);
+      }
+    } else if (object instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) object;
+      size += align(ARRAY_HEADER + (long) map.size() * MAP_ENTRY);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        push(pending, entry.getKey());
+        push(pending, entry.getValue());
+      }
+    } else {
+      for (Field field : layout.references) {
+        try {
+          push(pending, field.get(object));
+        } catch (IllegalAccessException e) {
+          // counted as a reference only
+        }
+      }
+    }
+    return size;
+  }
+
+  private Layout layout(Class<?> type) {
+    Layout layout = layouts.get(type);
+    if (layout == null) {
+      layout = newLayout(type);
+      layouts.put(type, layout);
+    }
+    return layout;
+  }
+
+  private static Layout newLayout(Class<?> type) {
+    boolean opaque = isOpaque(type);
+    long fields = 0;
+    List<Field> references = new ArrayList<Field>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        Class<?> fieldType = field.getType();
+        fields += fieldType.isPrimitive() ? sizeOfType(fieldType) : REFERENCE;
+        if (!opaque && !fieldType.isPrimitive()) {
+          try {
+            field.setAccessible(true);
+            references.add(field);
+          } catch (Exception e) {
+            // Ignored. The field still counts as a reference.
+          }
+        }
+      }
+    }
+    return new Layout(align(HEADER + fields), references.toArray(new Field[references.size()]));
+  }
+
+  private static boolean isOpaque(Class<?> type) {
+    for (Class<?> walkedType : WALKED_TYPES) {
+      if (walkedType == type) {
+        return false;
+      }
+    }
+    String name = type.getName();
+    for (String prefix : OPAQUE_PACKAGES) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int sizeOfType(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else {
+      return 1;
+    }
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static void push(Deque<Object> pending, Object object) {
+    if (object != null) {
+      pending.push(object);
+    }
+  }
+
+  private static class Layout {
+
+    final long size;
+    final Field[] references;
+
+    Layout(long size, Field[] references) {
+      this.size = size;
+      this.references = references;
+    }
+  }
+
+}
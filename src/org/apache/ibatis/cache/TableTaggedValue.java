@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A cached result together with the tables it was read from and their {@link TableVersions} at the time.
+ */
+public class TableTaggedValue implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private Object value;
+  private String[] tables;
+  private long[] versions;
+
+  public TableTaggedValue() {
+    // for codecs
+  }
+
+  public TableTaggedValue(Object value, String[] tables, long[] versions) {
+    this.value = value;
+    this.tables = tables;
+    this.versions = versions;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public String[] getTables() {
+    return tables;
+  }
+
+  public long[] getVersions() {
+    return versions;
+  }
+
+  public boolean dependsOn(Collection<String> written) {
+    if (written.isEmpty()) {
+      return false;
+    }
+    if (written.contains(TableVersions.ANY_TABLE)) {
+      return true;
+    }
+    for (String table : tables) {
+      if (TableVersions.ANY_TABLE.equals(table) || written.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "TableTaggedValue" + Arrays.toString(tables);
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters of the tables the cached results depend on, shared by all the caches of a configuration so that
+ * a write seen in one namespace reaches the results cached by any other.
+ * A committed write moves the counters of the tables it touched; a cached result is stale as soon as one of the
+ * counters it was stored with has moved.
+ */
+public class TableVersions {
+
+  /**
+   * Stands for the tables of a statement that could not be told: results depending on it are made stale by any
+   * write, and a write touching it makes every result stale.
+   */
+  public static final String ANY_TABLE = "*";
+
+  private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+  // random start, so results kept by a persistent cache across a restart are never taken as current
+  private final AtomicLong generation = new AtomicLong(new Random().nextLong());
+
+  public long[] snapshot(String[] tables) {
+    long[] snapshot = new long[tables.length + 1];
+    snapshot[0] = generation.get();
+    for (int i = 0; i < tables.length; i++) {
+      snapshot[i + 1] = version(tables[i]).get();
+    }
+    return snapshot;
+  }
+
+  public boolean isCurrent(String[] tables, long[] snapshot) {
+    if (snapshot == null || snapshot.length != tables.length + 1 || snapshot[0] != generation.get()) {
+      return false;
+    }
+    for (int i = 0; i < tables.length; i++) {
+      if (snapshot[i + 1] != version(tables[i]).get()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void invalidate(Collection<String> tables) {
+    if (tables.contains(ANY_TABLE)) {
+      generation.incrementAndGet();
+      return;
+    }
+    for (String table : tables) {
+      version(table).incrementAndGet();
+    }
+    version(ANY_TABLE).incrementAndGet();
+  }
+
+  private AtomicLong version(String table) {
+    AtomicLong version = versions.get(table);
+    if (version == null) {
+      version = new AtomicLong();
+      AtomicLong existing = versions.putIfAbsent(table, version);
+      if (existing != null) {
+        version = existing;
+      }
+    }
+    return version;
+  }
+
+}
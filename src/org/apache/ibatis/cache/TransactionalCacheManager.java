@@ -15,8 +15,11 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
 
@@ -26,11 +29,31 @@ import org.apache.ibatis.cache.decorators.TransactionalCache;
 public class TransactionalCacheManager {
 
   private Map<Cache, TransactionalCache> transactionalCaches = new HashMap<Cache, TransactionalCache>();
+  private Set<String> tablesWritten = new HashSet<String>();
+  private TableVersions tableVersions;
+
+  public TransactionalCacheManager() {
+  }
+
+  public TransactionalCacheManager(TableVersions tableVersions) {
+    this.tableVersions = tableVersions;
+  }
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
   }
 
+  /**
+   * Records that the transaction wrote the given tables, whatever the cache of the statement that wrote them.
+   * The {@link TableVersions} of the tables are moved on commit.
+   */
+  public void invalidate(String[] tables) {
+    tablesWritten.addAll(Arrays.asList(tables));
+    for (TransactionalCache txCache : transactionalCaches.values()) {
+      txCache.invalidate(tablesWritten);
+    }
+  }
+
   public Object getObject(Cache cache, CacheKey key) {
     return getTransactionalCache(cache).getObject(key);
   }
@@ -40,12 +63,17 @@ public class TransactionalCacheManager {
   }
 
   public void commit() {
+    if (tableVersions != null && !tablesWritten.isEmpty()) {
+      tableVersions.invalidate(tablesWritten);
+      tablesWritten.clear();
+    }
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
     }
   }
 
   public void rollback() {
+    tablesWritten.clear();
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.rollback();
     }
@@ -54,7 +82,10 @@ public class TransactionalCacheManager {
   private TransactionalCache getTransactionalCache(Cache cache) {
     TransactionalCache txCache = transactionalCaches.get(cache);
     if (txCache == null) {
-      txCache = new TransactionalCache(cache);
+      txCache = new TransactionalCache(cache, tableVersions);
+      if (!tablesWritten.isEmpty()) {
+        txCache.invalidate(tablesWritten);
+      }
       transactionalCaches.put(cache, txCache);
     }
     return txCache;
@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Computes the relative weight of a cache entry for caches bounded by weight instead of entry count.
+ * <p>
+ * Implementations must have a public no-arg constructor so they can be named in a cache property.
+ */
+public interface Weigher {
+
+  /**
+   * @param key The key of the entry
+   * @param value The value of the entry
+   * @return The weight of the entry, must not be negative
+   */
+  int weigh(Object key, Object value);
+
+}
@@ -0,0 +1,726 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.io.Externalizable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheCodec;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.executor.loader.AbstractSerialStateHolder;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+
+/**
+ * Compact binary codec that writes the properties of beans, as found by their {@link Reflector}, without the
+ * class descriptors and block headers of Java serialization.
+ * <p>
+ * Each class is described once per value, by name and, for beans, with the names of the properties written.
+ * Properties are read back by name, so a class may gain or lose properties between writing and reading.
+ * Shared and cyclic references are kept. Boxed primitives, strings, big numbers, dates, enums, arrays and the
+ * java.util collections and maps are written natively.
+ * <p>
+ * Anything else, like classes with no default constructor or with their own serialization methods, is written
+ * with Java serialization inside the value. Lazy loading proxies are replaced as Java serialization would: by the
+ * bean alone when all its properties are loaded, or by their serial state holder, which is able to load them
+ * after being read.
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte TRUE = 7;
+  private static final byte FALSE = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte FLOAT = 10;
+  private static final byte DOUBLE = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte BIG_INTEGER = 13;
+  private static final byte DATE = 14;
+  private static final byte ENUM = 15;
+  private static final byte BYTES = 16;
+  private static final byte ARRAY = 17;
+  private static final byte COLLECTION = 18;
+  private static final byte MAP = 19;
+  private static final byte BEAN = 20;
+  private static final byte SERIALIZED = 21;
+
+  private static final List<String> SERIALIZATION_METHODS = Arrays.asList("writeReplace", "readResolve", "writeObject", "readObject");
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final JdkCacheCodec serializedCodec = new JdkCacheCodec();
+  // null values stand for the classes written with Java serialization
+  private final Map<Class<?>, Object> beanTypes = new ConcurrentHashMap<Class<?>, Object>();
+  private final Map<Class<?>, ReadBeanType> readBeanTypes = new ConcurrentHashMap<Class<?>, ReadBeanType>();
+
+  @Override
+  public byte[] encode(Object value) {
+    try {
+      Output out = new Output();
+      write(out, value);
+      return out.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error encoding object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object decode(byte[] bytes) {
+    try {
+      return read(new Input(bytes));
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error decoding object.  Cause: " + e, e);
+    }
+  }
+
+  private void write(Output out, Object value) throws Exception {
+    if (value == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      out.writeByte(STRING);
+      out.writeString((String) value);
+    } else if (type == Integer.class) {
+      out.writeByte(INTEGER);
+      out.writeVarLong((Integer) value);
+    } else if (type == Long.class) {
+      out.writeByte(LONG);
+      out.writeVarLong((Long) value);
+    } else if (type == Boolean.class) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (type == Short.class) {
+      out.writeByte(SHORT);
+      out.writeVarLong((Short) value);
+    } else if (type == Byte.class) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (type == Character.class) {
+      out.writeByte(CHARACTER);
+      out.writeVarInt((Character) value);
+    } else if (type == Float.class) {
+      out.writeByte(FLOAT);
+      out.writeFixedLong(Float.floatToIntBits((Float) value));
+    } else if (type == Double.class) {
+      out.writeByte(DOUBLE);
+      out.writeFixedLong(Double.doubleToLongBits((Double) value));
+    } else if (type == BigDecimal.class) {
+      out.writeByte(BIG_DECIMAL);
+      out.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+      out.writeVarLong(((BigDecimal) value).scale());
+    } else if (type == BigInteger.class) {
+      out.writeByte(BIG_INTEGER);
+      out.writeBytes(((BigInteger) value).toByteArray());
+    } else if (type == Date.class || type == java.sql.Date.class || type == Time.class || type == Timestamp.class) {
+      out.writeByte(DATE);
+      out.writeClass(type);
+      out.writeVarLong(((Date) value).getTime());
+      if (type == Timestamp.class) {
+        out.writeVarInt(((Timestamp) value).getNanos());
+      }
+    } else if (value instanceof Enum) {
+      out.writeByte(ENUM);
+      out.writeClass(((Enum<?>) value).getDeclaringClass());
+      out.writeString(((Enum<?>) value).name());
+    } else if (type == byte[].class) {
+      out.writeByte(BYTES);
+      out.writeBytes((byte[]) value);
+    } else if (out.writeReference(value)) {
+      // already written
+    } else if (value instanceof WriteReplaceInterface) {
+      Object replacement = ((WriteReplaceInterface) value).writeReplace();
+      if (replacement instanceof AbstractSerialStateHolder) {
+        writeSerialized(out, replacement);
+      } else {
+        // the proxy stands for the bean it is replaced with
+        out.removeReference(value);
+        write(out, replacement);
+        out.aliasReference(value, replacement);
+      }
+    } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+      int length = Array.getLength(value);
+      out.writeByte(ARRAY);
+      out.writeClass(type.getComponentType());
+      out.writeVarInt(length);
+      for (int i = 0; i < length; i++) {
+        write(out, Array.get(value, i));
+      }
+    } else if (value instanceof Collection && isNativeContainer(value)) {
+      out.writeByte(COLLECTION);
+      out.writeClass(type);
+      out.writeVarInt(((Collection<?>) value).size());
+      for (Object element : (Collection<?>) value) {
+        write(out, element);
+      }
+    } else if (value instanceof Map && isNativeContainer(value)) {
+      out.writeByte(MAP);
+      out.writeClass(type);
+      out.writeVarInt(((Map<?, ?>) value).size());
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        write(out, entry.getKey());
+        write(out, entry.getValue());
+      }
+    } else {
+      BeanType beanType = getBeanType(type);
+      if (beanType == null) {
+        writeSerialized(out, value);
+      } else {
+        out.writeByte(BEAN);
+        out.writeBeanType(beanType);
+        for (Invoker getter : beanType.getters) {
+          write(out, getter.invoke(value, null));
+        }
+      }
+    }
+  }
+
+  private void writeSerialized(Output out, Object value) {
+    out.writeByte(SERIALIZED);
+    out.writeBytes(serializedCodec.encode(value));
+  }
+
+  private Object read(Input in) throws Exception {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case REFERENCE:
+        return in.references.get(in.readVarInt());
+      case STRING:
+        return in.readString();
+      case INTEGER:
+        return (int) in.readVarLong();
+      case LONG:
+        return in.readVarLong();
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case SHORT:
+        return (short) in.readVarLong();
+      case BYTE:
+        return in.readByte();
+      case CHARACTER:
+        return (char) in.readVarInt();
+      case FLOAT:
+        return Float.intBitsToFloat((int) in.readFixedLong());
+      case DOUBLE:
+        return Double.longBitsToDouble(in.readFixedLong());
+      case BIG_DECIMAL:
+        return new BigDecimal(new BigInteger(in.readBytes()), (int) in.readVarLong());
+      case BIG_INTEGER:
+        return new BigInteger(in.readBytes());
+      case DATE:
+        return readDate(in);
+      case ENUM:
+        return readEnum(in);
+      case BYTES:
+        return in.readBytes();
+      case ARRAY:
+        return readArray(in);
+      case COLLECTION:
+        return readCollection(in);
+      case MAP:
+        return readMap(in);
+      case BEAN:
+        return readBean(in);
+      case SERIALIZED:
+        Object value = serializedCodec.decode(in.readBytes());
+        in.references.add(value);
+        return value;
+      default:
+        throw new CacheException("Unknown tag " + tag + " in an encoded cache value.");
+    }
+  }
+
+  private Object readDate(Input in) {
+    Class<?> type = in.readClass();
+    long time = in.readVarLong();
+    if (type == Timestamp.class) {
+      Timestamp timestamp = new Timestamp(time);
+      timestamp.setNanos(in.readVarInt());
+      return timestamp;
+    } else if (type == java.sql.Date.class) {
+      return new java.sql.Date(time);
+    } else if (type == Time.class) {
+      return new Time(time);
+    }
+    return new Date(time);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Object readEnum(Input in) {
+    Class type = in.readClass();
+    return Enum.valueOf(type, in.readString());
+  }
+
+  private Object readArray(Input in) throws Exception {
+    Class<?> componentType = in.readClass();
+    int length = in.readVarInt();
+    Object array = Array.newInstance(componentType, length);
+    in.references.add(array);
+    for (int i = 0; i < length; i++) {
+      Array.set(array, i, read(in));
+    }
+    return array;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object readCollection(Input in) throws Exception {
+    Collection<Object> collection = (Collection<Object>) in.readClass().newInstance();
+    in.references.add(collection);
+    int size = in.readVarInt();
+    for (int i = 0; i < size; i++) {
+      collection.add(read(in));
+    }
+    return collection;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object readMap(Input in) throws Exception {
+    Map<Object, Object> map = (Map<Object, Object>) in.readClass().newInstance();
+    in.references.add(map);
+    int size = in.readVarInt();
+    for (int i = 0; i < size; i++) {
+      Object key = read(in);
+      map.put(key, read(in));
+    }
+    return map;
+  }
+
+  private Object readBean(Input in) throws Exception {
+    ReadBeanType beanType = in.readBeanType();
+    Object bean = beanType.constructor.newInstance();
+    in.references.add(bean);
+    for (int i = 0; i < beanType.setters.length; i++) {
+      Object value = read(in);
+      Invoker setter = beanType.setters[i];
+      if (setter != null && (value != null || !beanType.primitives[i])) {
+        setter.invoke(bean, new Object[] { value });
+      }
+    }
+    return bean;
+  }
+
+  /*
+   * Only the plain java.util containers, whose state is all in their elements
+   */
+  private static boolean isNativeContainer(Object value) {
+    Class<?> type = value.getClass();
+    if (!type.getName().startsWith("java.util.") || type.getName().indexOf('$') >= 0) {
+      return false;
+    }
+    if (value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null
+        || value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null) {
+      return false;
+    }
+    try {
+      return Modifier.isPublic(type.getConstructor().getModifiers());
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private BeanType getBeanType(Class<?> type) {
+    Object beanType = beanTypes.get(type);
+    if (beanType == null) {
+      beanType = newBeanType(type);
+      beanTypes.put(type, beanType);
+    }
+    return beanType instanceof BeanType ? (BeanType) beanType : null;
+  }
+
+  /*
+   * Beans are the classes with a default constructor that leave their serialization to the default mechanism
+   */
+  private Object newBeanType(Class<?> type) {
+    String typeName = type.getName();
+    if (typeName.startsWith("java.") || typeName.startsWith("javax.") || Modifier.isAbstract(type.getModifiers())
+        || Externalizable.class.isAssignableFrom(type) || type.isArray() || type.isAnonymousClass()
+        || type.isMemberClass() && !Modifier.isStatic(type.getModifiers())) {
+      return Boolean.FALSE;
+    }
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Method method : c.getDeclaredMethods()) {
+        if (SERIALIZATION_METHODS.contains(method.getName())) {
+          return Boolean.FALSE;
+        }
+      }
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return Boolean.FALSE;
+    }
+    List<String> names = new ArrayList<String>();
+    List<Invoker> getters = new ArrayList<Invoker>();
+    for (String property : reflector.getGetablePropertyNames()) {
+      if (!reflector.hasSetter(property)) {
+        continue;
+      }
+      Invoker getter = reflector.getGetInvoker(property);
+      Invoker setter = reflector.getSetInvoker(property);
+      if ((getter instanceof GetFieldInvoker || setter instanceof SetFieldInvoker) && !isSerializableField(type, property)) {
+        continue;
+      }
+      names.add(property);
+      getters.add(getter);
+    }
+    return new BeanType(type, names.toArray(new String[names.size()]), getters.toArray(new Invoker[getters.size()]));
+  }
+
+  private static boolean isSerializableField(Class<?> type, String name) {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (field.getName().equals(name)) {
+          return !Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers());
+        }
+      }
+    }
+    return true;
+  }
+
+  private ReadBeanType getReadBeanType(Class<?> type, String[] names) {
+    ReadBeanType beanType = readBeanTypes.get(type);
+    if (beanType == null || !Arrays.equals(beanType.names, names)) {
+      beanType = newReadBeanType(type, names);
+      readBeanTypes.put(type, beanType);
+    }
+    return beanType;
+  }
+
+  private ReadBeanType newReadBeanType(Class<?> type, String[] names) {
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      throw new CacheException("Class " + type.getName() + " was encoded as a bean but has no default constructor now.");
+    }
+    Invoker[] setters = new Invoker[names.length];
+    boolean[] primitives = new boolean[names.length];
+    for (int i = 0; i < names.length; i++) {
+      if (reflector.hasSetter(names[i])) {
+        // properties removed since the value was written are read and dropped
+        setters[i] = reflector.getSetInvoker(names[i]);
+        primitives[i] = reflector.getSetterType(names[i]).isPrimitive();
+      }
+    }
+    return new ReadBeanType(reflector.getDefaultConstructor(), names, setters, primitives);
+  }
+
+  private static class BeanType {
+    private final Class<?> type;
+    private final String[] names;
+    private final Invoker[] getters;
+
+    BeanType(Class<?> type, String[] names, Invoker[] getters) {
+      this.type = type;
+      this.names = names;
+      this.getters = getters;
+    }
+  }
+
+  private static class ReadBeanType {
+    private final Constructor<?> constructor;
+    private final String[] names;
+    private final Invoker[] setters;
+    private final boolean[] primitives;
+
+    ReadBeanType(Constructor<?> constructor, String[] names, Invoker[] setters, boolean[] primitives) {
+      this.constructor = constructor;
+      this.names = names;
+      this.setters = setters;
+      this.primitives = primitives;
+    }
+  }
+
+  private static class Output {
+    private byte[] buffer = new byte[256];
+    private int count;
+    private final IdentityHashMap<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    private int nextReference;
+    private final Map<Class<?>, Integer> classes = new IdentityHashMap<Class<?>, Integer>();
+    private final Map<BeanType, Integer> beanTypes = new IdentityHashMap<BeanType, Integer>();
+
+    /*
+     * Writes a reference to an object already written, or numbers it for the references to come
+     */
+    boolean writeReference(Object value) {
+      Integer reference = references.get(value);
+      if (reference != null) {
+        writeByte(REFERENCE);
+        writeVarInt(reference);
+        return true;
+      }
+      references.put(value, nextReference++);
+      return false;
+    }
+
+    void removeReference(Object value) {
+      references.remove(value);
+      nextReference--;
+    }
+
+    void aliasReference(Object value, Object target) {
+      Integer reference = references.get(target);
+      if (reference != null) {
+        references.put(value, reference);
+      }
+    }
+
+    void writeClass(Class<?> type) {
+      Integer index = classes.get(type);
+      if (index != null) {
+        writeVarInt(index + 1);
+      } else {
+        classes.put(type, classes.size());
+        writeVarInt(0);
+        writeString(type.getName());
+      }
+    }
+
+    void writeBeanType(BeanType beanType) {
+      Integer index = beanTypes.get(beanType);
+      if (index != null) {
+        writeVarInt(index + 1);
+      } else {
+        beanTypes.put(beanType, beanTypes.size());
+        writeVarInt(0);
+        writeString(beanType.type.getName());
+        writeVarInt(beanType.names.length);
+        for (String name : beanType.names) {
+          writeString(name);
+        }
+      }
+    }
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[count++] = (byte) value;
+    }
+
+    void writeVarInt(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[count++] = (byte) value;
+    }
+
+    /*
+     * Zigzag encoded, so that small negative numbers stay short
+     */
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      long zigzag = (value << 1) ^ (value >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+        buffer[count++] = (byte) ((zigzag & 0x7F) | 0x80);
+        zigzag >>>= 7;
+      }
+      buffer[count++] = (byte) zigzag;
+    }
+
+    void writeFixedLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[count++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeVarInt(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, count, bytes.length);
+      count += bytes.length;
+    }
+
+    void writeString(String value) {
+      int length = value.length();
+      boolean ascii = true;
+      for (int i = 0; i < length && ascii; i++) {
+        ascii = value.charAt(i) < 0x80;
+      }
+      if (ascii) {
+        // the length is doubled and odd for the common case, plain ascii, written without an encoder
+        writeVarInt(length << 1 | 1);
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+          buffer[count++] = (byte) value.charAt(i);
+        }
+      } else {
+        byte[] bytes = value.getBytes(UTF8);
+        writeVarInt(bytes.length << 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+      }
+    }
+
+    byte[] toByteArray() {
+      byte[] bytes = new byte[count];
+      System.arraycopy(buffer, 0, bytes, 0, count);
+      return bytes;
+    }
+
+    private void ensureCapacity(int length) {
+      if (count + length > buffer.length) {
+        byte[] larger = new byte[Math.max(buffer.length << 1, count + length)];
+        System.arraycopy(buffer, 0, larger, 0, count);
+        buffer = larger;
+      }
+    }
+  }
+
+  private class Input {
+    private final byte[] buffer;
+    private int position;
+    private final List<Object> references = new ArrayList<Object>();
+    private final List<Class<?>> classes = new ArrayList<Class<?>>();
+    private final List<ReadBeanType> beanTypes = new ArrayList<ReadBeanType>();
+
+    Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    Class<?> readClass() {
+      int index = readVarInt();
+      if (index > 0) {
+        return classes.get(index - 1);
+      }
+      Class<?> type = classForName(readString());
+      classes.add(type);
+      return type;
+    }
+
+    ReadBeanType readBeanType() {
+      int index = readVarInt();
+      if (index > 0) {
+        return beanTypes.get(index - 1);
+      }
+      Class<?> type = classForName(readString());
+      String[] names = new String[readVarInt()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = readString();
+      }
+      ReadBeanType beanType = getReadBeanType(type, names);
+      beanTypes.add(beanType);
+      return beanType;
+    }
+
+    byte readByte() {
+      return buffer[position++];
+    }
+
+    int readVarInt() {
+      int value = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = buffer[position++];
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    long readVarLong() {
+      long zigzag = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = buffer[position++];
+        zigzag |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    long readFixedLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = value << 8 | (buffer[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    byte[] readBytes() {
+      byte[] bytes = new byte[readVarInt()];
+      System.arraycopy(buffer, position, bytes, 0, bytes.length);
+      position += bytes.length;
+      return bytes;
+    }
+
+    String readString() {
+      int header = readVarInt();
+      int length = header >>> 1;
+      String value;
+      if ((header & 1) != 0) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+          chars[i] = (char) buffer[position++];
+        }
+        value = new String(chars);
+      } else {
+        value = new String(buffer, position, length, UTF8);
+        position += length;
+      }
+      return value;
+    }
+
+    private Class<?> classForName(String name) {
+      try {
+        return Resources.classForName(name);
+      } catch (ClassNotFoundException e) {
+        throw new CacheException("Could not find class " + name + " of an encoded cache value.  Cause: " + e, e);
+      }
+    }
+  }
+
+}
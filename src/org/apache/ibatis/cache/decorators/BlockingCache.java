@@ -16,10 +16,9 @@
 package org.apache.ibatis.cache.decorators;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -27,22 +26,30 @@ import org.apache.ibatis.cache.CacheException;
 /**
  * Simple blocking decorator 
  * 
- * Simple and inefficient version of EhCache's BlockingCache decorator.
- * It sets a lock over a cache key when the element is not found in cache.
- * This way, other threads will wait until this element is filled instead of hitting the database.
+ * Single-flight version of EhCache's BlockingCache decorator.
+ * The first thread that misses a key registers an in-flight load for it and goes to the database.
+ * Other threads missing the same key wait for that load instead of hitting the database,
+ * then read the value the loader put.
+ * 
+ * The in-flight load is completed by the next putObject or removeObject for the key, whichever thread
+ * calls it, so it survives until the TransactionalCache commits or rolls back and is then forgotten.
+ * A load whose owner thread died without completing it is taken over by the next waiter.
  * 
  * @author Eduardo Macarron
  *
  */
 public class BlockingCache implements Cache {
 
+  // how often a waiter checks that the loading thread is still alive
+  private static final long OWNER_CHECK_INTERVAL = 1000;
+
   private long timeout;
   private final Cache delegate;
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final ConcurrentHashMap<Object, Flight> flights;
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
-    this.locks = new ConcurrentHashMap<Object, ReentrantLock>();
+    this.flights = new ConcurrentHashMap<Object, Flight>();
   }
 
   @Override
@@ -60,24 +67,39 @@ public class BlockingCache implements Cache {
     try {
       delegate.putObject(key, value);
     } finally {
-      releaseLock(key);
+      complete(key);
     }
   }
 
   @Override
   public Object getObject(Object key) {
-    acquireLock(key);
-    Object value = delegate.getObject(key);
-    if (value != null) {
-      releaseLock(key);
-    }        
-    return value;
+    while (true) {
+      Object value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+      Flight flight = new Flight();
+      Flight inFlight = flights.putIfAbsent(key, flight);
+      if (inFlight == null) {
+        // this thread loads the key, unless someone completed a load between the miss and the registration
+        value = delegate.getObject(key);
+        if (value != null) {
+          complete(key);
+        }
+        return value;
+      }
+      if (inFlight.owner == Thread.currentThread()) {
+        // the loader asks again before having put the value
+        return null;
+      }
+      await(key, inFlight);
+    }
   }
 
   @Override
   public Object removeObject(Object key) {
     // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    complete(key);
     return null;
   }
 
@@ -90,33 +112,35 @@ public class BlockingCache implements Cache {
   public ReadWriteLock getReadWriteLock() {
     return null;
   }
-  
-  private ReentrantLock getLockForKey(Object key) {
-    ReentrantLock lock = new ReentrantLock();
-    ReentrantLock previous = locks.putIfAbsent(key, lock);
-    return previous == null ? lock : previous;
+
+  private void complete(Object key) {
+    Flight flight = flights.remove(key);
+    if (flight != null) {
+      flight.latch.countDown();
+    }
   }
-  
-  private void acquireLock(Object key) {
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-        if (!acquired) {
+
+  private void await(Object key, Flight flight) {
+    long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+    try {
+      while (true) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
           throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());  
         }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+        if (flight.latch.await(Math.min(OWNER_CHECK_INTERVAL, remaining), TimeUnit.MILLISECONDS)) {
+          return;
+        }
+        if (!flight.owner.isAlive()) {
+          // stranded load, let the waiters race to become the new loader
+          if (flights.remove(key, flight)) {
+            flight.latch.countDown();
+          }
+          return;
+        }
       }
-    } else {
-      lock.lock();
-    }
-  }
-  
-  private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
-      lock.unlock();
+    } catch (InterruptedException e) {
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
     }
   }
 
@@ -126,5 +150,11 @@ public class BlockingCache implements Cache {
 
   public void setTimeout(long timeout) {
     this.timeout = timeout;
-  }  
-}
\ No newline at end of file
+  }
+
+  private static class Flight {
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch latch = new CountDownLatch(1);
+  }
+
+}
@@ -0,0 +1,102 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte budget shared by the {@link MemoryBoundedCache}s of a configuration. Once their estimated sizes add up to
+ * more than <code>maximumBytes</code>, entries are evicted from the largest cache, least recently used first,
+ * until the total fits again.
+ */
+public class CacheMemoryBudget {
+
+  private final List<MemoryBoundedCache> caches = new CopyOnWriteArrayList<MemoryBoundedCache>();
+  private final AtomicLong usedBytes = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private volatile long maximumBytes;
+
+  /*
+   * The maximum estimated bytes held by all the caches together, 0 for no limit
+   */
+  public void setMaximumBytes(long maximumBytes) {
+    this.maximumBytes = maximumBytes;
+    reclaim();
+  }
+
+  public long getMaximumBytes() {
+    return maximumBytes;
+  }
+
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  /**
+   * @return the number of entries evicted because the budget was exceeded
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  public List<MemoryBoundedCache> getCaches() {
+    return Collections.unmodifiableList(caches);
+  }
+
+  void register(MemoryBoundedCache cache) {
+    caches.add(cache);
+  }
+
+  void add(long bytes) {
+    usedBytes.addAndGet(bytes);
+  }
+
+  /*
+   * Called without holding the lock of any cache, it takes the lock of one cache at a time
+   */
+  void reclaim() {
+    while (maximumBytes > 0 && usedBytes.get() > maximumBytes) {
+      MemoryBoundedCache largest = null;
+      long largestBytes = 0;
+      for (MemoryBoundedCache cache : caches) {
+        long bytes = cache.getBytes();
+        if (bytes > largestBytes) {
+          largest = cache;
+          largestBytes = bytes;
+        }
+      }
+      if (largest == null || !largest.evictEldest()) {
+        return;
+      }
+      evictionCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public String toString() {
+    List<String> sizes = new ArrayList<String>();
+    for (MemoryBoundedCache cache : caches) {
+      sizes.add(cache.getId() + "=" + cache.getBytes());
+    }
+    return "CacheMemoryBudget[used=" + usedBytes.get() + ", maximum=" + maximumBytes + ", evictions=" + evictionCount.get()
+        + ", caches=" + sizes + "]";
+  }
+
+}
@@ -0,0 +1,327 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheRefresher;
+import org.apache.ibatis.cache.ExpiringValue;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Expires every entry on its own once its time to live has elapsed, instead of clearing the whole cache at once
+ * like {@link ScheduledCache} does.
+ * <p>
+ * A plain value lives for the <code>defaultTimeToLive</code> of the cache (0 for ever). An {@link ExpiringValue}
+ * brings its own time to live and possibly a {@link CacheRefresher}: when such an entry is read during the last
+ * part of its life (after <code>refreshAheadFactor</code> of it), it is reloaded in the background, so entries
+ * that stay in use never expire. Expiry times are kept on a {@link TimerWheel} moved along by the calls to the cache.
+ * <p>
+ * A delegate that keeps its entries across restarts must be given <code>keepExpiryWithValues</code>: values with a
+ * time to live are then stored as {@link ExpiringValue}s, and an entry read back without a timer gets one from them.
+ * <p>
+ * Safe for concurrent use as long as the delegate is.
+ */
+public class ExpiringCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(ExpiringCache.class);
+
+  private static final ThreadPoolExecutor refresherPool = newRefresherPool();
+
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+  private final ReentrantLock lock = new ReentrantLock();
+  // guarded by lock
+  private final TimerWheel wheel = new TimerWheel(System.currentTimeMillis());
+  private long defaultTimeToLive;
+  private double refreshAheadFactor = 0.8;
+  private boolean keepExpiryWithValues;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /*
+   * Time in milliseconds a plain value stays valid after it was put, 0 for no expiry
+   */
+  public void setDefaultTimeToLive(long defaultTimeToLive) {
+    this.defaultTimeToLive = defaultTimeToLive;
+  }
+
+  /*
+   * Share of the time to live after which a read starts a refresh, 1 or more to never refresh
+   */
+  public void setRefreshAheadFactor(double refreshAheadFactor) {
+    this.refreshAheadFactor = refreshAheadFactor;
+  }
+
+  /*
+   * Stores the expiry time with the values that have one, for a delegate that outlives this decorator
+   */
+  public void setKeepExpiryWithValues(boolean keepExpiryWithValues) {
+    this.keepExpiryWithValues = keepExpiryWithValues;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      advance(System.currentTimeMillis());
+    } finally {
+      lock.unlock();
+    }
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    Object value = object;
+    long timeToLive = defaultTimeToLive;
+    CacheRefresher refresher = null;
+    if (object instanceof ExpiringValue) {
+      ExpiringValue expiringValue = (ExpiringValue) object;
+      value = expiringValue.getValue();
+      if (expiringValue.getTimeToLive() > 0) {
+        timeToLive = expiringValue.getTimeToLive();
+      }
+      refresher = expiringValue.getRefresher();
+    }
+    lock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      advance(now);
+      Entry prior;
+      if (timeToLive > 0 && value != null) {
+        delegate.putObject(key, keepExpiryWithValues ? new ExpiringValue(value, timeToLive, null) : value);
+        long refreshAt = refresher == null || refreshAheadFactor >= 1 ? Long.MAX_VALUE : now + (long) (timeToLive * refreshAheadFactor);
+        Entry entry = new Entry(key, now + timeToLive, refreshAt, refresher);
+        prior = entries.put(key, entry);
+        wheel.schedule(entry);
+      } else {
+        delegate.putObject(key, value);
+        prior = entries.remove(key);
+      }
+      if (prior != null) {
+        wheel.cancel(prior);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      long now = System.currentTimeMillis();
+      if (now >= entry.expireAt) {
+        expire(entry);
+        return null;
+      }
+      if (now >= entry.refreshAt) {
+        refreshAhead(entry);
+      }
+      if (wheel.isDue(now) && lock.tryLock()) {
+        try {
+          advance(now);
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+    Object value = delegate.getObject(key);
+    if (value instanceof ExpiringValue) {
+      return entry == null ? restore(key, (ExpiringValue) value) : ((ExpiringValue) value).getValue();
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      Entry entry = entries.remove(key);
+      if (entry != null) {
+        wheel.cancel(entry);
+      }
+      Object value = delegate.removeObject(key);
+      return value instanceof ExpiringValue ? ((ExpiringValue) value).getValue() : value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      entries.clear();
+      wheel.clear(System.currentTimeMillis());
+      delegate.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /* must hold lock */
+  private void advance(long now) {
+    if (!wheel.isDue(now)) {
+      return;
+    }
+    List<TimerWheel.Timer> expired = new ArrayList<TimerWheel.Timer>();
+    wheel.advance(now, expired);
+    for (TimerWheel.Timer timer : expired) {
+      if (entries.remove(timer.key, timer)) {
+        delegate.removeObject(timer.key);
+      }
+    }
+  }
+
+  /*
+   * A value the delegate had before this decorator saw it, e.g. loaded again from disk
+   */
+  private Object restore(Object key, ExpiringValue value) {
+    lock.lock();
+    try {
+      if (entries.containsKey(key)) {
+        // put meanwhile
+        return value.getValue();
+      }
+      long expireAt = value.getCreatedAt() + value.getTimeToLive();
+      if (System.currentTimeMillis() >= expireAt) {
+        delegate.removeObject(key);
+        return null;
+      }
+      Entry entry = new Entry(key, expireAt, Long.MAX_VALUE, null);
+      entries.put(key, entry);
+      wheel.schedule(entry);
+      return value.getValue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void expire(Entry entry) {
+    lock.lock();
+    try {
+      if (entries.remove(entry.key, entry)) {
+        wheel.cancel(entry);
+        delegate.removeObject(entry.key);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void refreshAhead(final Entry entry) {
+    if (!entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refresherPool.execute(new Runnable() {
+        @Override
+        public void run() {
+          refresh(entry);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // too many refreshes pending, a later read may try again
+      entry.refreshing.set(false);
+    }
+  }
+
+  private void refresh(Entry entry) {
+    Object value;
+    try {
+      value = entry.refresher.refresh();
+    } catch (Exception e) {
+      log.warn("Could not refresh the entry " + entry.key + " of cache " + getId() + ", it will expire.  Cause: " + e);
+      return;
+    }
+    if (value == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      // the entry may have been removed or replaced meanwhile, by a write for instance
+      if (entries.get(entry.key) == entry) {
+        putObject(entry.key, value);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static ThreadPoolExecutor newRefresherPool() {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ExpiringCache-refresher");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  private static final class Entry extends TimerWheel.Timer {
+
+    final long refreshAt;
+    final CacheRefresher refresher;
+    final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Entry(Object key, long expireAt, long refreshAt, CacheRefresher refresher) {
+      super(key, expireAt);
+      this.refreshAt = refreshAt;
+      this.refresher = refresher;
+    }
+  }
+
+}
@@ -0,0 +1,242 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.RetainedSizeWeigher;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Bounds the cache by the estimated bytes its entries retain, evicting the least recently used ones first.
+ * <p>
+ * Unlike {@link SoftCache} and {@link WeakCache}, what the cache holds does not depend on the garbage collector:
+ * entries leave a few at a time as new ones come in, instead of all at once under memory pressure. Several caches
+ * can also share a {@link CacheMemoryBudget}, which then evicts from the largest of them.
+ * <p>
+ * Properties: <code>maximumBytes</code> (64 MB by default, 0 to be bounded by the budget only) and
+ * <code>weigher</code> (class name of a {@link Weigher}, {@link RetainedSizeWeigher} by default). Below a
+ * SerializedCache the entries are byte arrays, which are weighed exactly. Safe for concurrent use.
+ */
+public class MemoryBoundedCache implements Cache {
+
+  private static final Weigher DEFAULT_WEIGHER = new RetainedSizeWeigher();
+
+  private final Cache delegate;
+  private final ReentrantLock lock = new ReentrantLock();
+  // guarded by lock
+  private final LinkedHashMap<Object, Integer> weights = new LinkedHashMap<Object, Integer>(16, 0.75f, true);
+  private long bytes;
+  private long evictionCount;
+  private long evictedBytes;
+
+  private Weigher weigher = DEFAULT_WEIGHER;
+  private long maximumBytes = 64L * 1024 * 1024;
+  private CacheMemoryBudget budget;
+
+  public MemoryBoundedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /*
+   * The maximum estimated bytes held by this cache, 0 for no limit of its own
+   */
+  public void setMaximumBytes(long maximumBytes) {
+    this.maximumBytes = maximumBytes;
+  }
+
+  /*
+   * Class name of the {@link Weigher} estimating the bytes of an entry
+   */
+  public void setWeigher(String weigherClass) {
+    try {
+      this.weigher = (Weigher) Resources.classForName(weigherClass).newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate weigher (" + weigherClass + "). Cause: " + e, e);
+    }
+  }
+
+  /*
+   * Shares the budget of other caches on top of maximumBytes
+   */
+  public void setMemoryBudget(CacheMemoryBudget budget) {
+    this.budget = budget;
+    budget.register(this);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      return delegate.getSize();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    int weight = weigher.weigh(key, value);
+    lock.lock();
+    try {
+      delegate.putObject(key, value);
+      Integer prior = weights.put(key, weight);
+      add(prior == null ? weight : weight - prior);
+      while (maximumBytes > 0 && bytes > maximumBytes && evictEldest()) {
+        // an entry larger than maximumBytes is not kept either
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (budget != null) {
+      budget.reclaim();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    lock.lock();
+    try {
+      // moves the entry to the most recently used end
+      weights.get(key);
+      return delegate.getObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      Integer weight = weights.remove(key);
+      if (weight != null) {
+        add(-weight);
+      }
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      weights.clear();
+      add(-bytes);
+      delegate.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * @return the estimated bytes held by the cache
+   */
+  public long getBytes() {
+    lock.lock();
+    try {
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getMaximumBytes() {
+    return maximumBytes;
+  }
+
+  /**
+   * @return the number of entries evicted, for this cache or for the budget it shares
+   */
+  public long getEvictionCount() {
+    lock.lock();
+    try {
+      return evictionCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getEvictedBytes() {
+    lock.lock();
+    try {
+      return evictedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return "MemoryBoundedCache[" + getId() + ": entries=" + weights.size() + ", bytes=" + bytes + ", maximum="
+          + maximumBytes + ", evictions=" + evictionCount + ", evictedBytes=" + evictedBytes + "]";
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /*
+   * Evicts the least recently used entry, false when the cache is empty
+   */
+  boolean evictEldest() {
+    lock.lock();
+    try {
+      Iterator<Map.Entry<Object, Integer>> iterator = weights.entrySet().iterator();
+      if (!iterator.hasNext()) {
+        return false;
+      }
+      Map.Entry<Object, Integer> eldest = iterator.next();
+      iterator.remove();
+      delegate.removeObject(eldest.getKey());
+      add(-eldest.getValue());
+      evictionCount++;
+      evictedBytes += eldest.getValue();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /* must hold lock */
+  private void add(long delta) {
+    bytes += delta;
+    if (budget != null) {
+      budget.add(delta);
+    }
+  }
+
+}
@@ -20,6 +20,9 @@ import java.util.concurrent.locks.ReadWriteLock;
 import org.apache.ibatis.cache.Cache;
 
 /**
+ * Clears the whole cache once <code>clearInterval</code> has elapsed. The standard decorators now use
+ * {@link ExpiringCache}, which expires entries one by one.
+ *
  * @author Clinton Begin
  */
 public class ScheduledCache implements Cache {
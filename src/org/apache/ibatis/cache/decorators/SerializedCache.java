@@ -15,18 +15,17 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheCodec;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.JdkCacheCodec;
 import org.apache.ibatis.io.Resources;
 
 /**
@@ -35,9 +34,15 @@ import org.apache.ibatis.io.Resources;
 public class SerializedCache implements Cache {
 
   private Cache delegate;
+  private CacheCodec codec;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JdkCacheCodec());
+  }
+
+  public SerializedCache(Cache delegate, CacheCodec codec) {
     this.delegate = delegate;
+    this.codec = codec;
   }
 
   @Override
@@ -91,29 +96,11 @@ public class SerializedCache implements Cache {
   }
 
   private byte[] serialize(Serializable value) {
-    try {
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      ObjectOutputStream oos = new ObjectOutputStream(bos);
-      oos.writeObject(value);
-      oos.flush();
-      oos.close();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
-    }
+    return codec.encode(value);
   }
 
   private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try {
-      ByteArrayInputStream bis = new ByteArrayInputStream(value);
-      ObjectInputStream ois = new CustomObjectInputStream(bis);
-      result = (Serializable) ois.readObject();
-      ois.close();
-    } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
-    }
-    return result;
+    return (Serializable) codec.decode(value);
   }
 
   public static class CustomObjectInputStream extends ObjectInputStream {
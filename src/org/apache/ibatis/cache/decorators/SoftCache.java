@@ -26,6 +26,7 @@ import org.apache.ibatis.cache.Cache;
 /**
  * Soft Reference cache decorator
  * Thanks to Dr. Heinz Kabutz for his guidance here.
+ * See {@link MemoryBoundedCache} to bound the memory held without relying on the garbage collector.
  *
  * @author Clinton Begin
  */
@@ -0,0 +1,149 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel keeping the expiry times of cache entries. Scheduling, cancelling and expiring a timer
+ * cost O(1) whatever the number of timers.
+ * <p>
+ * Each level is a ring of buckets, each bucket covering a power of two milliseconds (about 1 s, 1 min, 1 h and
+ * 1.5 days, plus one overflow bucket). A timer goes to the finest level whose ring spans its remaining time and
+ * cascades to finer levels as its bucket comes up, until it expires. Not safe for concurrent use.
+ */
+class TimerWheel {
+
+  private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+  private static final int[] SHIFT = { 10, 16, 22, 27, 29 };
+
+  private final Timer[][] wheel;
+  private long time;
+
+  TimerWheel(long now) {
+    wheel = new Timer[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; i++) {
+      wheel[i] = new Timer[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; j++) {
+        wheel[i][j] = new Timer(null, 0);
+      }
+    }
+    clear(now);
+  }
+
+  void schedule(Timer timer) {
+    cancel(timer);
+    Timer sentinel = findBucket(timer.expireAt);
+    timer.next = sentinel;
+    timer.prev = sentinel.prev;
+    sentinel.prev.next = timer;
+    sentinel.prev = timer;
+  }
+
+  void cancel(Timer timer) {
+    if (timer.next != null) {
+      timer.prev.next = timer.next;
+      timer.next.prev = timer.prev;
+      timer.prev = null;
+      timer.next = null;
+    }
+  }
+
+  /**
+   * Moves the wheel to the given time, adding the timers that expired to the list.
+   */
+  void advance(long now, List<Timer> expired) {
+    long previous = time;
+    if (now <= previous) {
+      return;
+    }
+    time = now;
+    for (int i = 0; i < SHIFT.length; i++) {
+      long previousTicks = previous >>> SHIFT[i];
+      long delta = (now >>> SHIFT[i]) - previousTicks;
+      if (delta <= 0) {
+        break;
+      }
+      expire(i, previousTicks, delta, expired);
+    }
+  }
+
+  /**
+   * @return true when the finest level has moved to another bucket since the last advance
+   */
+  boolean isDue(long now) {
+    return (now >>> SHIFT[0]) != (time >>> SHIFT[0]);
+  }
+
+  void clear(long now) {
+    for (Timer[] ring : wheel) {
+      for (Timer sentinel : ring) {
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+      }
+    }
+    time = now;
+  }
+
+  private void expire(int level, long previousTicks, long delta, List<Timer> expired) {
+    Timer[] ring = wheel[level];
+    int mask = ring.length - 1;
+    int start = (int) (previousTicks & mask);
+    int steps = (int) Math.min(1 + delta, ring.length);
+    for (int i = 0; i < steps; i++) {
+      Timer sentinel = ring[(start + i) & mask];
+      Timer timer = sentinel.next;
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      while (timer != sentinel) {
+        Timer next = timer.next;
+        timer.prev = null;
+        timer.next = null;
+        if (timer.expireAt <= time) {
+          expired.add(timer);
+        } else {
+          schedule(timer);
+        }
+        timer = next;
+      }
+    }
+  }
+
+  private Timer findBucket(long expireAt) {
+    long duration = expireAt - time;
+    for (int i = 0; i < BUCKETS.length - 1; i++) {
+      if (duration < 1L << SHIFT[i + 1]) {
+        long ticks = expireAt >>> SHIFT[i];
+        return wheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+      }
+    }
+    return wheel[BUCKETS.length - 1][0];
+  }
+
+  static class Timer {
+
+    final Object key;
+    final long expireAt;
+    Timer prev;
+    Timer next;
+
+    Timer(Object key, long expireAt) {
+      this.key = key;
+      this.expireAt = expireAt;
+    }
+  }
+
+}
@@ -15,13 +15,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ExpiringValue;
+import org.apache.ibatis.cache.TableTaggedValue;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -33,6 +38,9 @@ import org.apache.ibatis.logging.LogFactory;
  * Blocking cache support has been added. Therefore any get() that returns a cache miss 
  * will be followed by a put() so any lock associated with the key can be released. 
  * 
+ * Entries tagged with the tables they were read from ({@link TableTaggedValue}) are only returned while those
+ * tables have not been written, neither by a committed transaction nor by this one.
+ * 
  * @author Clinton Begin
  * @author Eduardo Macarron
  */
@@ -44,12 +52,20 @@ public class TransactionalCache implements Cache {
   private boolean clearOnCommit;
   private Map<Object, Object> entriesToAddOnCommit;
   private Set<Object> entriesMissedInCache;
+  private Set<String> tablesWritten;
+  private TableVersions tableVersions;
 
   public TransactionalCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  public TransactionalCache(Cache delegate, TableVersions tableVersions) {
     this.delegate = delegate;
+    this.tableVersions = tableVersions;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<Object, Object>();
     this.entriesMissedInCache = new HashSet<Object>();
+    this.tablesWritten = new HashSet<String>();
   }
 
   @Override
@@ -70,8 +86,15 @@ public class TransactionalCache implements Cache {
       entriesMissedInCache.add(key);
     }
     // issue #146
+    if (object instanceof ExpiringValue) {
+      // kept as put by a cache without ExpiringCache
+      ExpiringValue expiringValue = (ExpiringValue) object;
+      object = expiringValue.isExpired(System.currentTimeMillis()) ? null : expiringValue.getValue();
+    }
     if (clearOnCommit) {
       return null;
+    } else if (object instanceof TableTaggedValue) {
+      return currentValue((TableTaggedValue) object);
     } else {
       return object;
     }
@@ -84,6 +107,10 @@ public class TransactionalCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
+    if (isWritten(object)) {
+      // read after this transaction wrote its tables, so it will be stale once committed
+      return;
+    }
     entriesToAddOnCommit.put(key, object);
   }
 
@@ -98,6 +125,20 @@ public class TransactionalCache implements Cache {
     entriesToAddOnCommit.clear();
   }
 
+  /**
+   * Records that this transaction wrote the given tables: entries depending on them are no longer returned nor
+   * added on commit. The {@link TableVersions} themselves are moved by the caller once the transaction commits.
+   */
+  public void invalidate(Collection<String> tables) {
+    tablesWritten.addAll(tables);
+    Iterator<Object> values = entriesToAddOnCommit.values().iterator();
+    while (values.hasNext()) {
+      if (isWritten(values.next())) {
+        values.remove();
+      }
+    }
+  }
+
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
@@ -115,6 +156,22 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    tablesWritten.clear();
+  }
+
+  private boolean isWritten(Object object) {
+    if (object instanceof ExpiringValue) {
+      object = ((ExpiringValue) object).getValue();
+    }
+    return object instanceof TableTaggedValue && ((TableTaggedValue) object).dependsOn(tablesWritten);
+  }
+
+  private Object currentValue(TableTaggedValue value) {
+    if (tableVersions == null || value.dependsOn(tablesWritten)
+        || !tableVersions.isCurrent(value.getTables(), value.getVersions())) {
+      return null;
+    }
+    return value.getValue();
   }
 
   private void flushPendingEntries() {
@@ -0,0 +1,466 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheCodec;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.JdkCacheCodec;
+
+/**
+ * Cache that keeps serialized entries outside of the Java heap, in direct ByteBuffers or in a memory-mapped file.
+ * <p>
+ * The store is split in slabs of <code>slabSize</code> bytes, themselves split in blocks of <code>blockSize</code>
+ * bytes. An entry takes a chain of blocks, and the first one describes the entry, so only a small index of block
+ * numbers stays on the heap. When <code>capacity</code> bytes are used the least recently used entries are evicted.
+ * <p>
+ * With a <code>directory</code> the slabs are mapped from a file named after the cache id, and the entries found
+ * there are loaded again when the cache is next opened with the same capacity and block size. Keys must then be
+ * serializable too. Values are copies, so the cache does not need to be readOnly="false" to be safe to share, and it
+ * is safe for concurrent use. Direct buffers count against -XX:MaxDirectMemorySize.
+ * <p>
+ * Properties: <code>capacity</code> (bytes, default 64MB), <code>blockSize</code> (bytes, default 1024),
+ * <code>slabSize</code> (bytes, default 16MB, a multiple of blockSize), <code>directory</code>. They must be set
+ * before the cache is first used, like the codec of the values given by the codec attribute of the cache.
+ */
+public class OffHeapCache implements Cache {
+
+  private static final int FREE = 0;
+  private static final int HEAD = 0x4F484331;
+  private static final int TAIL = 2;
+  private static final int END = -1;
+  // state and next block of every block, then block size, key length, value length and sequence of the first one
+  private static final int BLOCK_HEADER = 8;
+  private static final int HEAD_HEADER = BLOCK_HEADER + 20;
+
+  private static final byte[] NO_BYTES = new byte[0];
+  private static final CacheCodec KEY_CODEC = new JdkCacheCodec();
+
+  private final String id;
+  private final LinkedHashMap<Object, Entry> index = new LinkedHashMap<Object, Entry>(16, .75F, true);
+
+  private long capacity = 64L * 1024 * 1024;
+  private int blockSize = 1024;
+  private int slabSize = 16 * 1024 * 1024;
+  private String directory;
+  private CacheCodec codec = new JdkCacheCodec();
+
+  private ByteBuffer[] slabs;
+  private int blocksPerSlab;
+  private int totalBlocks;
+  private int[] freeBlocks;
+  private int freeCount;
+  private long sequence;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    open();
+    return index.size();
+  }
+
+  public void setCapacity(long capacity) {
+    checkNotOpen();
+    this.capacity = capacity;
+  }
+
+  public void setBlockSize(int blockSize) {
+    checkNotOpen();
+    this.blockSize = blockSize;
+  }
+
+  public void setSlabSize(int slabSize) {
+    checkNotOpen();
+    this.slabSize = slabSize;
+  }
+
+  public void setDirectory(String directory) {
+    checkNotOpen();
+    this.directory = directory;
+  }
+
+  /*
+   * Whether the entries outlive the cache, i.e. a directory was given
+   */
+  public boolean isPersistent() {
+    return directory != null;
+  }
+
+  /*
+   * The codec of the values, keys are always written with Java serialization
+   */
+  public void setCodec(CacheCodec codec) {
+    checkNotOpen();
+    this.codec = codec;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to store a non-serializable object: " + value);
+    }
+    byte[] keyBytes = NO_BYTES;
+    if (directory != null && key instanceof Serializable) {
+      try {
+        keyBytes = KEY_CODEC.encode(key);
+      } catch (CacheException e) {
+        // kept until the cache is closed but not loaded again
+      }
+    }
+    byte[] valueBytes = codec.encode(value);
+    synchronized (this) {
+      open();
+      free(index.remove(key));
+      int needed = blocksFor(keyBytes.length + valueBytes.length);
+      if (needed > totalBlocks) {
+        // larger than the whole store
+        return;
+      }
+      while (freeCount < needed) {
+        Iterator<Entry> eldest = index.values().iterator();
+        free(eldest.next());
+        eldest.remove();
+      }
+      int[] blocks = new int[needed];
+      for (int i = 0; i < needed; i++) {
+        blocks[i] = freeBlocks[--freeCount];
+      }
+      Entry entry = new Entry(blocks, keyBytes.length, valueBytes.length);
+      write(entry, keyBytes, valueBytes);
+      index.put(key, entry);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] valueBytes;
+    synchronized (this) {
+      open();
+      Entry entry = index.get(key);
+      if (entry == null) {
+        return null;
+      }
+      valueBytes = read(entry);
+    }
+    return codec.decode(valueBytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    byte[] valueBytes;
+    synchronized (this) {
+      open();
+      Entry entry = index.remove(key);
+      if (entry == null) {
+        return null;
+      }
+      valueBytes = read(entry);
+      free(entry);
+    }
+    return codec.decode(valueBytes);
+  }
+
+  @Override
+  public synchronized void clear() {
+    open();
+    for (Entry entry : index.values()) {
+      free(entry);
+    }
+    index.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private synchronized void checkNotOpen() {
+    if (slabs != null) {
+      throw new CacheException("The properties of cache " + id + " cannot be changed once it is in use.");
+    }
+  }
+
+  // all the methods below must be called holding the lock of this cache
+
+  private void open() {
+    if (slabs != null) {
+      return;
+    }
+    if (blockSize <= HEAD_HEADER || slabSize < blockSize || slabSize % blockSize != 0) {
+      throw new CacheException("The slabSize of cache " + id + " must be a multiple of its blockSize, which must be larger than " + HEAD_HEADER);
+    }
+    long blocks = capacity / blockSize;
+    if (blocks < 1 || blocks > Integer.MAX_VALUE) {
+      throw new CacheException("Invalid capacity " + capacity + " for cache " + id);
+    }
+    totalBlocks = (int) blocks;
+    blocksPerSlab = slabSize / blockSize;
+    ByteBuffer[] buffers = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+    boolean restore = false;
+    if (directory == null) {
+      for (int i = 0; i < buffers.length; i++) {
+        buffers[i] = ByteBuffer.allocateDirect(slabBlocks(i) * blockSize);
+      }
+    } else {
+      File file = new File(directory, id.replaceAll("[^\\w.-]", "_") + ".offheap");
+      long length = (long) totalBlocks * blockSize;
+      restore = file.length() == length;
+      try {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+          randomAccessFile.setLength(length);
+          FileChannel channel = randomAccessFile.getChannel();
+          for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * blocksPerSlab * blockSize, slabBlocks(i) * blockSize);
+          }
+        } finally {
+          // the mappings stay valid once the file is closed
+          randomAccessFile.close();
+        }
+      } catch (IOException e) {
+        throw new CacheException("Could not map " + file + " for cache " + id + ". Cause: " + e, e);
+      }
+    }
+    slabs = buffers;
+    freeBlocks = new int[totalBlocks];
+    freeCount = 0;
+    if (restore) {
+      restore();
+    } else {
+      for (int block = totalBlocks - 1; block >= 0; block--) {
+        setState(block, FREE);
+        freeBlocks[freeCount++] = block;
+      }
+    }
+  }
+
+  private int slabBlocks(int slab) {
+    return Math.min(blocksPerSlab, totalBlocks - slab * blocksPerSlab);
+  }
+
+  /*
+   * Loads the index again from the heads found in a mapped file, oldest entry first
+   */
+  private void restore() {
+    boolean[] used = new boolean[totalBlocks];
+    List<Object[]> restored = new ArrayList<Object[]>();
+    for (int block = 0; block < totalBlocks; block++) {
+      if (getState(block) != HEAD || slab(block).getInt(offset(block) + BLOCK_HEADER) != blockSize) {
+        continue;
+      }
+      ByteBuffer slab = slab(block);
+      int keyLength = slab.getInt(offset(block) + BLOCK_HEADER + 4);
+      int valueLength = slab.getInt(offset(block) + BLOCK_HEADER + 8);
+      long entrySequence = slab.getLong(offset(block) + BLOCK_HEADER + 12);
+      if (keyLength <= 0 || valueLength < 0 || (long) keyLength + valueLength > (long) totalBlocks * blockSize) {
+        continue;
+      }
+      int[] blocks = chain(block, blocksFor(keyLength + valueLength), used);
+      if (blocks == null) {
+        continue;
+      }
+      Entry entry = new Entry(blocks, keyLength, valueLength);
+      Object key;
+      try {
+        byte[] keyBytes = new byte[keyLength];
+        transfer(blocks, 0, keyBytes, false);
+        key = KEY_CODEC.decode(keyBytes);
+      } catch (CacheException e) {
+        continue;
+      }
+      for (int b : blocks) {
+        used[b] = true;
+      }
+      restored.add(new Object[] { entrySequence, key, entry });
+      sequence = Math.max(sequence, entrySequence);
+    }
+    Collections.sort(restored, new Comparator<Object[]>() {
+      @Override
+      public int compare(Object[] o1, Object[] o2) {
+        return ((Long) o1[0]).compareTo((Long) o2[0]);
+      }
+    });
+    for (Object[] entry : restored) {
+      free(index.put(entry[1], (Entry) entry[2]));
+    }
+    for (int block = totalBlocks - 1; block >= 0; block--) {
+      if (!used[block]) {
+        setState(block, FREE);
+        freeBlocks[freeCount++] = block;
+      }
+    }
+  }
+
+  private int[] chain(int head, int length, boolean[] used) {
+    int[] blocks = new int[length];
+    int block = head;
+    for (int i = 0; i < length; i++) {
+      if (block < 0 || block >= totalBlocks || used[block] || (i > 0 && getState(block) != TAIL)) {
+        return null;
+      }
+      blocks[i] = block;
+      block = slab(block).getInt(offset(block) + 4);
+    }
+    return block == END ? blocks : null;
+  }
+
+  private int blocksFor(int payload) {
+    int first = blockSize - HEAD_HEADER;
+    if (payload <= first) {
+      return 1;
+    }
+    int next = blockSize - BLOCK_HEADER;
+    return 1 + (payload - first + next - 1) / next;
+  }
+
+  private void write(Entry entry, byte[] keyBytes, byte[] valueBytes) {
+    int[] blocks = entry.blocks;
+    transfer(blocks, 0, keyBytes, true);
+    transfer(blocks, keyBytes.length, valueBytes, true);
+    for (int i = blocks.length - 1; i >= 0; i--) {
+      ByteBuffer slab = slab(blocks[i]);
+      int offset = offset(blocks[i]);
+      slab.putInt(offset + 4, i + 1 < blocks.length ? blocks[i + 1] : END);
+      if (i > 0) {
+        slab.putInt(offset, TAIL);
+      }
+    }
+    ByteBuffer slab = slab(blocks[0]);
+    int offset = offset(blocks[0]);
+    slab.putInt(offset + BLOCK_HEADER, blockSize);
+    slab.putInt(offset + BLOCK_HEADER + 4, entry.keyLength);
+    slab.putInt(offset + BLOCK_HEADER + 8, entry.valueLength);
+    slab.putLong(offset + BLOCK_HEADER + 12, ++sequence);
+    // the head is marked last, a half written entry is never loaded again
+    slab.putInt(offset, HEAD);
+  }
+
+  private byte[] read(Entry entry) {
+    byte[] valueBytes = new byte[entry.valueLength];
+    transfer(entry.blocks, entry.keyLength, valueBytes, false);
+    return valueBytes;
+  }
+
+  /*
+   * Copies data to or from the payload of a chain of blocks, starting at a position of the payload
+   */
+  private void transfer(int[] blocks, int payloadOffset, byte[] data, boolean write) {
+    int skip = payloadOffset;
+    int position = 0;
+    for (int i = 0; i < blocks.length && position < data.length; i++) {
+      int start = i == 0 ? HEAD_HEADER : BLOCK_HEADER;
+      int room = blockSize - start;
+      if (skip >= room) {
+        skip -= room;
+        continue;
+      }
+      int length = Math.min(room - skip, data.length - position);
+      ByteBuffer slab = slab(blocks[i]);
+      slab.position(offset(blocks[i]) + start + skip);
+      if (write) {
+        slab.put(data, position, length);
+      } else {
+        slab.get(data, position, length);
+      }
+      skip = 0;
+      position += length;
+    }
+  }
+
+  private void free(Entry entry) {
+    if (entry != null) {
+      setState(entry.blocks[0], FREE);
+      for (int block : entry.blocks) {
+        freeBlocks[freeCount++] = block;
+      }
+    }
+  }
+
+  private int getState(int block) {
+    return slab(block).getInt(offset(block));
+  }
+
+  private void setState(int block, int state) {
+    slab(block).putInt(offset(block), state);
+  }
+
+  private ByteBuffer slab(int block) {
+    return slabs[block / blocksPerSlab];
+  }
+
+  private int offset(int block) {
+    return (block % blocksPerSlab) * blockSize;
+  }
+
+  private static class Entry {
+    private final int[] blocks;
+    private final int keyLength;
+    private final int valueLength;
+
+    Entry(int[] blocks, int keyLength, int valueLength) {
+      this.blocks = blocks;
+      this.keyLength = keyLength;
+      this.valueLength = valueLength;
+    }
+  }
+
+}
@@ -0,0 +1,548 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Bounded cache with W-TinyLFU eviction that is safe for concurrent use without any decorator.
+ * <p>
+ * New entries enter a small LRU window. Entries leaving the window must compete for a place in the
+ * main segmented LRU against its least recently used entry, and the one a {@link FrequencySketch}
+ * has seen less often recently is evicted. This keeps one-off queries from flushing popular results.
+ * <p>
+ * Reads never block: they look the entry up in a ConcurrentHashMap and record the access in a lossy
+ * striped buffer that is replayed against the policy later. Writes and the buffer replay are
+ * serialized by a lock that readers only ever try.
+ * <p>
+ * Properties: <code>size</code> (maximum number of entries), <code>weigher</code> and
+ * <code>maximumWeight</code> (to bound by weight instead), <code>expireAfterWrite</code> (ms).
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int DEAD = -1;
+
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int READ_BUFFER_STRIPES = readBufferStripes();
+
+  private final String id;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<Object, Node>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+  private final ConcurrentLinkedQueue<Node> expiredNodes = new ConcurrentLinkedQueue<Node>();
+
+  // guarded by evictionLock
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+  private final FrequencySketch sketch;
+  private long windowWeight;
+  private long protectedWeight;
+  private long totalWeight;
+  private long windowMaximum;
+  private long protectedMaximum;
+
+  private int size = 1024;
+  private long maximumWeight;
+  private Weigher weigher;
+  private long expireAfterWrite;
+
+  public TinyLfuCache(String id) {
+    this.id = id;
+    for (int i = 0; i < READ_BUFFER_STRIPES; i++) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    this.sketch = new FrequencySketch(size);
+    resize();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  /*
+   * The maximum number of entries, used unless a weigher is configured
+   */
+  public void setSize(int size) {
+    this.size = size;
+    resize();
+  }
+
+  /*
+   * The maximum total weight of the entries, used together with a weigher
+   */
+  public void setMaximumWeight(long maximumWeight) {
+    this.maximumWeight = maximumWeight;
+    resize();
+  }
+
+  /*
+   * Class name of a {@link Weigher}. Without one every entry weighs 1.
+   */
+  public void setWeigher(String weigherClass) {
+    try {
+      this.weigher = (Weigher) Resources.classForName(weigherClass).newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate weigher (" + weigherClass + "). Cause: " + e, e);
+    }
+    resize();
+  }
+
+  /*
+   * Time in milliseconds an entry stays valid after it was put, 0 for no expiry
+   */
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    putObject(key, value, expireAfterWrite);
+  }
+
+  /*
+   * Puts an entry that expires after its own time to live instead of expireAfterWrite
+   *
+   * @param timeToLive - milliseconds the entry stays valid, 0 for no expiry
+   */
+  public void putObject(Object key, Object value, long timeToLive) {
+    if (value == null) {
+      // a null value means a miss, there is no point in keeping it
+      removeObject(key);
+      return;
+    }
+    Node node = new Node(key, value, weigh(key, value), timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0);
+    evictionLock.lock();
+    try {
+      Node prior = data.put(key, node);
+      if (prior != null && prior.queue != DEAD) {
+        replace(prior, node);
+      } else {
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        totalWeight += node.weight;
+      }
+      sketch.increment(key);
+      maintenance();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    if (node.expireAt != 0 && node.expireAt <= System.currentTimeMillis()) {
+      if (data.remove(key, node)) {
+        expiredNodes.add(node);
+      }
+      return null;
+    }
+    ReadBuffer buffer = readBuffers[stripe()];
+    if (!buffer.offer(node) && evictionLock.tryLock()) {
+      try {
+        maintenance();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    if (node == null) {
+      return null;
+    }
+    evictionLock.lock();
+    try {
+      unlink(node);
+    } finally {
+      evictionLock.unlock();
+    }
+    return node.value;
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      data.clear();
+      drainReadBuffers();
+      expiredNodes.clear();
+      for (AccessOrderDeque deque : new AccessOrderDeque[] { window, probation, protectedDeque }) {
+        Node node;
+        while ((node = deque.pollFirst()) != null) {
+          node.queue = DEAD;
+        }
+      }
+      windowWeight = 0;
+      protectedWeight = 0;
+      totalWeight = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private int weigh(Object key, Object value) {
+    if (weigher == null) {
+      return 1;
+    }
+    int weight = weigher.weigh(key, value);
+    if (weight < 0) {
+      throw new CacheException("Weigher " + weigher.getClass().getName() + " returned a negative weight for key " + key);
+    }
+    return weight;
+  }
+
+  private long capacity() {
+    return weigher != null && maximumWeight > 0 ? maximumWeight : size;
+  }
+
+  private void resize() {
+    evictionLock.lock();
+    try {
+      long capacity = capacity();
+      windowMaximum = Math.max(1, capacity / 100);
+      protectedMaximum = (capacity - windowMaximum) * 8 / 10;
+      sketch.ensureCapacity(size);
+      maintenance();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  // all the methods below must be called with the evictionLock held
+
+  private void maintenance() {
+    drainReadBuffers();
+    Node node;
+    while ((node = expiredNodes.poll()) != null) {
+      unlink(node);
+    }
+    evict();
+  }
+
+  private void drainReadBuffers() {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drain(this);
+    }
+  }
+
+  private void onAccess(Node node) {
+    if (node.queue == DEAD) {
+      return;
+    }
+    sketch.increment(node.key);
+    if (node.queue == WINDOW) {
+      window.moveToEnd(node);
+    } else if (node.queue == PROBATION) {
+      probation.remove(node);
+      node.queue = PROTECTED;
+      protectedDeque.addLast(node);
+      protectedWeight += node.weight;
+      demoteProtected();
+    } else {
+      protectedDeque.moveToEnd(node);
+    }
+  }
+
+  private void demoteProtected() {
+    while (protectedWeight > protectedMaximum) {
+      Node demoted = protectedDeque.pollFirst();
+      if (demoted == null) {
+        break;
+      }
+      protectedWeight -= demoted.weight;
+      demoted.queue = PROBATION;
+      probation.addLast(demoted);
+    }
+  }
+
+  private void evict() {
+    // entries leaving the window become admission candidates at the end of probation
+    while (windowWeight > windowMaximum) {
+      Node candidate = window.pollFirst();
+      if (candidate == null) {
+        break;
+      }
+      windowWeight -= candidate.weight;
+      candidate.queue = PROBATION;
+      probation.addLast(candidate);
+    }
+    while (totalWeight > capacity()) {
+      Node victim = probation.peekFirst();
+      Node candidate = probation.peekLast();
+      if (victim == null) {
+        victim = protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst();
+        if (victim == null) {
+          break;
+        }
+        evictNode(victim);
+      } else if (victim == candidate || isExpired(victim)) {
+        evictNode(victim);
+      } else if (isExpired(candidate) || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+        evictNode(candidate);
+      } else {
+        evictNode(victim);
+      }
+    }
+  }
+
+  private boolean isExpired(Node node) {
+    return node.expireAt != 0 && node.expireAt <= System.currentTimeMillis();
+  }
+
+  private void evictNode(Node node) {
+    data.remove(node.key, node);
+    unlink(node);
+  }
+
+  private void unlink(Node node) {
+    if (node.queue == DEAD) {
+      return;
+    }
+    if (node.queue == WINDOW) {
+      window.remove(node);
+      windowWeight -= node.weight;
+    } else if (node.queue == PROBATION) {
+      probation.remove(node);
+    } else {
+      protectedDeque.remove(node);
+      protectedWeight -= node.weight;
+    }
+    totalWeight -= node.weight;
+    node.queue = DEAD;
+  }
+
+  private void replace(Node prior, Node node) {
+    int delta = node.weight - prior.weight;
+    node.queue = prior.queue;
+    if (prior.queue == WINDOW) {
+      window.replace(prior, node);
+      windowWeight += delta;
+    } else if (prior.queue == PROBATION) {
+      probation.replace(prior, node);
+    } else {
+      protectedDeque.replace(prior, node);
+      protectedWeight += delta;
+    }
+    totalWeight += delta;
+    prior.queue = DEAD;
+  }
+
+  private static int stripe() {
+    long id = Thread.currentThread().getId();
+    int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (READ_BUFFER_STRIPES - 1);
+  }
+
+  private static int readBufferStripes() {
+    int n = 1;
+    int processors = Runtime.getRuntime().availableProcessors();
+    while (n < processors && n < 16) {
+      n <<= 1;
+    }
+    return n;
+  }
+
+  private static final class Node {
+    final Object key;
+    final Object value;
+    final int weight;
+    final long expireAt;
+    // guarded by evictionLock
+    int queue = DEAD;
+    Node prev;
+    Node next;
+
+    Node(Object key, Object value, int weight, long expireAt) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.expireAt = expireAt;
+    }
+  }
+
+  /*
+   * Bounded ring of recent reads. Producers claim a slot by CAS and drop the access when the ring is full,
+   * the single consumer holds the eviction lock.
+   */
+  private static final class ReadBuffer {
+    private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<Node>(READ_BUFFER_SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter;
+
+    /*
+     * @return false if the buffer is full and should be drained
+     */
+    boolean offer(Node node) {
+      long tail = writeCounter.get();
+      if (tail - readCounter >= READ_BUFFER_SIZE) {
+        return false;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & READ_BUFFER_MASK), node);
+      }
+      return true;
+    }
+
+    void drain(TinyLfuCache cache) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      for (; head < tail; head++) {
+        int index = (int) (head & READ_BUFFER_MASK);
+        Node node = buffer.get(index);
+        if (node == null) {
+          // slot claimed but not yet written
+          break;
+        }
+        buffer.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      readCounter = head;
+    }
+  }
+
+  /*
+   * Intrusive doubly linked list ordered from least to most recently used
+   */
+  private static final class AccessOrderDeque {
+    private Node first;
+    private Node last;
+
+    Node peekFirst() {
+      return first;
+    }
+
+    Node peekLast() {
+      return last;
+    }
+
+    void addLast(Node node) {
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    Node pollFirst() {
+      Node node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+
+    void moveToEnd(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void replace(Node prior, Node node) {
+      node.prev = prior.prev;
+      node.next = prior.next;
+      if (prior.prev == null) {
+        first = node;
+      } else {
+        prior.prev.next = node;
+      }
+      if (prior.next == null) {
+        last = node;
+      } else {
+        prior.next.prev = node;
+      }
+      prior.prev = null;
+      prior.next = null;
+    }
+  }
+
+}
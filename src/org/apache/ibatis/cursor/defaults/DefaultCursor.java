@@ -0,0 +1,237 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetWrapper;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * This is the default implementation of a MyBatis Cursor.
+ * This implementation is not thread safe.
+ * <p>
+ * Rows are pulled one object at a time through the result set handler, so only the
+ * current object (and, for nested result maps, its pending children) is kept in memory.
+ * The result set and its statement are closed once the last row has been read or when
+ * {@link #close()} is called.
+ */
+public class DefaultCursor<T> implements Cursor<T> {
+
+  // ResultSetHandler stuff
+  private final DefaultResultSetHandler resultSetHandler;
+  private final ResultMap resultMap;
+  private final ResultSetWrapper rsw;
+  private final RowBounds rowBounds;
+  private final ObjectWrapperResultHandler<T> objectWrapperResultHandler = new ObjectWrapperResultHandler<T>();
+
+  private final CursorIterator cursorIterator = new CursorIterator();
+  private boolean iteratorRetrieved;
+
+  private CursorStatus status = CursorStatus.CREATED;
+  private int indexWithRowBound = -1;
+
+  private enum CursorStatus {
+
+    /**
+     * A freshly created cursor, database ResultSet consuming has not started
+     */
+    CREATED,
+    /**
+     * A cursor currently in use, database ResultSet consuming has started
+     */
+    OPEN,
+    /**
+     * A closed cursor, not fully consumed
+     */
+    CLOSED,
+    /**
+     * A fully consumed cursor, a consumed cursor is always closed
+     */
+    CONSUMED
+  }
+
+  public DefaultCursor(DefaultResultSetHandler resultSetHandler, ResultMap resultMap, ResultSetWrapper rsw, RowBounds rowBounds) {
+    this.resultSetHandler = resultSetHandler;
+    this.resultMap = resultMap;
+    this.rsw = rsw;
+    this.rowBounds = rowBounds;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return status == CursorStatus.OPEN;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return status == CursorStatus.CONSUMED;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return rowBounds.getOffset() + cursorIterator.iteratorIndex;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    iteratorRetrieved = true;
+    return cursorIterator;
+  }
+
+  @Override
+  public void close() {
+    if (isClosed()) {
+      return;
+    }
+
+    ResultSet rs = rsw.getResultSet();
+    try {
+      if (rs != null) {
+        Statement statement = rs.getStatement();
+
+        rs.close();
+        if (statement != null) {
+          statement.close();
+        }
+      }
+      status = CursorStatus.CLOSED;
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  protected boolean fetchNextUsingRowBound() {
+    boolean found = fetchNextObjectFromDatabase();
+    while (found && indexWithRowBound < rowBounds.getOffset()) {
+      found = fetchNextObjectFromDatabase();
+    }
+    return found;
+  }
+
+  /*
+   * Pulls the next mapped object into objectWrapperResultHandler. A row may legitimately map
+   * to null, so whether an object was produced is reported separately from its value.
+   */
+  protected boolean fetchNextObjectFromDatabase() {
+    if (isClosed()) {
+      return false;
+    }
+
+    objectWrapperResultHandler.fetched = false;
+    objectWrapperResultHandler.result = null;
+    try {
+      status = CursorStatus.OPEN;
+      resultSetHandler.handleRowValues(rsw, resultMap, objectWrapperResultHandler, RowBounds.DEFAULT, null);
+    } catch (SQLException e) {
+      close();
+      throw ExceptionFactory.wrapException("Error fetching next cursor item.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+
+    boolean found = objectWrapperResultHandler.fetched;
+    if (found) {
+      indexWithRowBound++;
+    }
+    // No more object or limit reached
+    if (!found || getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit()) {
+      close();
+      status = CursorStatus.CONSUMED;
+    }
+    return found;
+  }
+
+  private boolean isClosed() {
+    return status == CursorStatus.CLOSED || status == CursorStatus.CONSUMED;
+  }
+
+  private int getReadItemsCount() {
+    return indexWithRowBound + 1;
+  }
+
+  private static class ObjectWrapperResultHandler<T> implements ResultHandler<T> {
+
+    private T result;
+    private boolean fetched;
+
+    @Override
+    public void handleResult(ResultContext<? extends T> context) {
+      this.result = context.getResultObject();
+      this.fetched = true;
+      context.stop();
+    }
+  }
+
+  private class CursorIterator implements Iterator<T> {
+
+    /**
+     * Holder for the next object to be returned
+     */
+    T object;
+
+    /**
+     * Whether object holds a fetched item that has not been returned yet
+     */
+    boolean pending;
+
+    /**
+     * Index of objects returned using next(), and as such, visible to users.
+     */
+    int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (!pending && fetchNextUsingRowBound()) {
+        object = objectWrapperResultHandler.result;
+        objectWrapperResultHandler.result = null;
+        pending = true;
+      }
+      return pending;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T next = object;
+      object = null;
+      pending = false;
+      iteratorIndex++;
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free container of pool entries.
+ * <p>
+ * A borrower first looks at the entries it returned itself (thread-local affinity),
+ * then scans the shared list and, if everything is in use, waits on a hand-off queue
+ * that returning threads feed directly. The state of each entry is only changed by CAS,
+ * so no monitor is ever held while borrowing or returning.
+ */
+class ConcurrentConnectionBag {
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<PoolEntry>();
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<PoolEntry>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ThreadLocal<List<WeakReference<PoolEntry>>> threadList = new ThreadLocal<List<WeakReference<PoolEntry>>>() {
+    @Override
+    protected List<WeakReference<PoolEntry>> initialValue() {
+      return new ArrayList<WeakReference<PoolEntry>>(MAX_THREAD_LOCAL_ENTRIES);
+    }
+  };
+
+  /*
+   * Borrows an idle entry, waiting at most the given time for another thread to return one
+   *
+   * @param timeout - the time to wait, zero or less to fail immediately
+   * @return the entry, already marked as in use, or null if none became available
+   */
+  public PoolEntry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    List<WeakReference<PoolEntry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      PoolEntry entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+
+    waiters.incrementAndGet();
+    try {
+      for (PoolEntry entry : sharedList) {
+        if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+      }
+      if (timeout <= 0) {
+        return null;
+      }
+      long remaining = unit.toNanos(timeout);
+      long deadline = System.nanoTime() + remaining;
+      while (remaining > 0) {
+        PoolEntry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null) {
+          return null;
+        }
+        if (entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /*
+   * Returns a borrowed entry, handing it straight to a waiting thread if there is one
+   *
+   * @param entry - the entry to return
+   */
+  public void requite(PoolEntry entry) {
+    entry.setState(PoolEntry.STATE_NOT_IN_USE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != PoolEntry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<PoolEntry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<PoolEntry>(entry));
+    }
+  }
+
+  /*
+   * Adds a new entry. Entries are created in use by the thread that opened the connection.
+   */
+  public void add(PoolEntry entry) {
+    sharedList.add(entry);
+  }
+
+  /*
+   * Removes an entry from the bag. Fails if the entry was already removed
+   * or if it is idle and another thread borrowed it in the meantime.
+   *
+   * @param entry - the entry to remove
+   * @param expectedState - the state the caller saw the entry in
+   * @return true if this call removed the entry
+   */
+  public boolean remove(PoolEntry entry, int expectedState) {
+    if (!entry.compareAndSetState(expectedState, PoolEntry.STATE_REMOVED)) {
+      return false;
+    }
+    sharedList.remove(entry);
+    return true;
+  }
+
+  public List<PoolEntry> values() {
+    return new ArrayList<PoolEntry>(sharedList);
+  }
+
+  public List<PoolEntry> values(int state) {
+    List<PoolEntry> list = new ArrayList<PoolEntry>();
+    for (PoolEntry entry : sharedList) {
+      if (entry.getState() == state) {
+        list.add(entry);
+      }
+    }
+    return list;
+  }
+
+  public int getCount(int state) {
+    int count = 0;
+    for (PoolEntry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public int size() {
+    return sharedList.size();
+  }
+
+}
@@ -0,0 +1,388 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A thread-safe connection pool that does not serialize checkouts and returns on a single monitor.
+ * <p>
+ * It accepts the same configuration as {@link PooledDataSource} but keeps its connections in a
+ * {@link ConcurrentConnectionBag} instead of the {@link PoolState} lists: idle connections are
+ * borrowed by CAS, returned ones are handed directly to waiting threads and new connections are
+ * opened without holding any lock.
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConcurrentConnectionBag bag = new ConcurrentConnectionBag();
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  /*
+   * Closes all active and idle connections in the pool
+   */
+  @Override
+  public void forceCloseAll() {
+    super.forceCloseAll();
+    if (bag == null) {
+      // called from a superclass constructor or finalizer before this instance was initialized
+      return;
+    }
+    for (PoolEntry entry : bag.values()) {
+      int entryState = entry.getState();
+      if (entryState == PoolEntry.STATE_REMOVED || !bag.remove(entry, entryState)) {
+        continue;
+      }
+      totalConnections.decrementAndGet();
+      PooledConnection holder = entry.getHolder();
+      if (holder != null) {
+        holder.invalidate();
+      }
+      closeQuietly(entry.getRealConnection());
+    }
+  }
+
+  @Override
+  protected PoolState newPoolState() {
+    return new PoolState(this) {
+      @Override
+      public int getIdleConnectionCount() {
+        return bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+      }
+
+      @Override
+      public int getActiveConnectionCount() {
+        return bag.getCount(PoolEntry.STATE_IN_USE);
+      }
+    };
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = ((EntryPooledConnection) conn).entry;
+    if (!entry.compareAndSetHolder(conn, null)) {
+      // the connection was claimed as overdue by another thread or force closed
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      conn.invalidate();
+      getPoolState().recordBadConnection();
+      return;
+    }
+    PoolState state = getPoolState();
+    if (conn.isValid()) {
+      state.recordCheckout(conn.getCheckoutTime());
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      conn.invalidate();
+      if (conn.getConnectionTypeCode() == expectedConnectionTypeCode
+          && !isExpired(entry.getCreatedTimestamp())
+          && bag.getCount(PoolEntry.STATE_NOT_IN_USE) < poolMaximumIdleConnections) {
+        entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        bag.requite(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        discard(entry);
+        conn.getRealConnection().close();
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      discard(entry);
+      getPoolState().recordBadConnection();
+    }
+  }
+
+  @Override
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+    PoolState state = getPoolState();
+
+    while (conn == null) {
+      PoolEntry entry;
+      try {
+        entry = bag.borrow(0, TimeUnit.MILLISECONDS);
+        if (entry == null) {
+          entry = createEntry();
+        }
+        if (entry == null) {
+          conn = claimOverdueConnection();
+        }
+        if (entry == null && conn == null) {
+          if (!countedWait) {
+            state.recordHadToWait();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          entry = bag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS);
+          state.recordWait(System.currentTimeMillis() - wt);
+        }
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (entry != null) {
+        conn = new EntryPooledConnection(entry, this);
+        conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+        conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+        // publish the checkout time together with the holder so it is never seen as overdue
+        conn.setCheckoutTimestamp(System.currentTimeMillis());
+        entry.setHolder(conn);
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      }
+      if (conn != null) {
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.recordRequest(System.currentTimeMillis() - t);
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          PoolEntry badEntry = ((EntryPooledConnection) conn).entry;
+          if (badEntry.compareAndSetHolder(conn, null)) {
+            discard(badEntry);
+            closeQuietly(badEntry.getRealConnection());
+          }
+          getPoolState().recordBadConnection();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
+            if (log.isDebugEnabled()) {
+              log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
+  @Override
+  protected void housekeep() throws SQLException {
+    for (PoolEntry entry : bag.values(PoolEntry.STATE_NOT_IN_USE)) {
+      // reserve the entry so no borrower gets it while it is checked
+      if (!entry.compareAndSetState(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+        continue;
+      }
+      if (isExpired(entry.getCreatedTimestamp())) {
+        discard(entry);
+        closeQuietly(entry.getRealConnection());
+        if (log.isDebugEnabled()) {
+          log.debug("Closed expired connection " + entry.getRealConnection().hashCode() + ".");
+        }
+        continue;
+      }
+      PooledConnection probe = new EntryPooledConnection(entry, this);
+      probe.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+      if (pingIfUnused(probe)) {
+        bag.requite(entry);
+      } else {
+        discard(entry);
+        getPoolState().recordBadConnection();
+      }
+    }
+
+    if (poolLeakedCheckoutTime > 0) {
+      for (PoolEntry entry : bag.values(PoolEntry.STATE_IN_USE)) {
+        PooledConnection holder = entry.getHolder();
+        if (holder == null || holder.getCheckoutTime() <= poolLeakedCheckoutTime
+            || !entry.compareAndSetHolder(holder, null)) {
+          continue;
+        }
+        long checkoutTime = holder.getCheckoutTime();
+        getPoolState().recordOverdueCheckout(checkoutTime);
+        holder.invalidate();
+        log.warn("Reclaimed connection " + holder.getRealHashCode() + " that was checked out for more than "
+            + poolLeakedCheckoutTime + " milliseconds. It was probably never closed.");
+        if (holder.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(entry.getCreatedTimestamp())) {
+          if (!entry.getRealConnection().getAutoCommit()) {
+            entry.getRealConnection().rollback();
+          }
+          entry.setLastUsedTimestamp(holder.getLastUsedTimestamp());
+          bag.requite(entry);
+        } else {
+          discard(entry);
+          closeQuietly(entry.getRealConnection());
+        }
+      }
+    }
+
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    while (bag.getCount(PoolEntry.STATE_NOT_IN_USE) < minimumIdle) {
+      PoolEntry entry = createEntry();
+      if (entry == null) {
+        break;
+      }
+      bag.requite(entry);
+    }
+  }
+
+  /*
+   * Opens a new physical connection if the pool has not reached its maximum size
+   *
+   * @return the new entry, already in use, or null if the pool is full
+   */
+  private PoolEntry createEntry() throws SQLException {
+    while (true) {
+      int total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        break;
+      }
+    }
+    PoolEntry entry;
+    try {
+      long ct = System.currentTimeMillis();
+      entry = new PoolEntry(newRealConnection());
+      getPoolState().recordCreation(System.currentTimeMillis() - ct);
+    } catch (SQLException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    } catch (RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+    bag.add(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+    }
+    return entry;
+  }
+
+  /*
+   * Takes over the connection that has been checked out the longest if it exceeded poolMaximumCheckoutTime
+   *
+   * @return a new pooled connection wrapping the claimed physical connection or null
+   */
+  private PooledConnection claimOverdueConnection() throws SQLException {
+    PooledConnection oldestActiveConnection = null;
+    for (PoolEntry entry : bag.values(PoolEntry.STATE_IN_USE)) {
+      PooledConnection holder = entry.getHolder();
+      if (holder != null && (oldestActiveConnection == null
+          || holder.getCheckoutTimestamp() < oldestActiveConnection.getCheckoutTimestamp())) {
+        oldestActiveConnection = holder;
+      }
+    }
+    if (oldestActiveConnection == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime) {
+      return null;
+    }
+    PoolEntry entry = ((EntryPooledConnection) oldestActiveConnection).entry;
+    PooledConnection conn = new EntryPooledConnection(entry, this);
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    if (!entry.compareAndSetHolder(oldestActiveConnection, conn)) {
+      // returned or claimed by someone else in the meantime
+      return null;
+    }
+    getPoolState().recordOverdueCheckout(longestCheckoutTime);
+    oldestActiveConnection.invalidate();
+    if (!conn.getRealConnection().getAutoCommit()) {
+      conn.getRealConnection().rollback();
+    }
+    conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private void discard(PoolEntry entry) {
+    if (bag.remove(entry, PoolEntry.STATE_IN_USE)) {
+      totalConnections.decrementAndGet();
+    }
+  }
+
+  /*
+   * Pooled connection that remembers the bag entry it was borrowed from
+   */
+  private static class EntryPooledConnection extends PooledConnection {
+
+    private final PoolEntry entry;
+
+    public EntryPooledConnection(PoolEntry entry, PooledDataSource dataSource) {
+      super(entry.getRealConnection(), dataSource);
+      this.entry = entry;
+    }
+
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of millisecond latencies with power-of-two buckets.
+ * Bucket 0 counts values of 0 ms and bucket i counts values in [2^(i-1), 2^i).
+ */
+public class LatencyHistogram {
+
+  public static final int BUCKET_COUNT = 32;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final StripedCounter count = new StripedCounter();
+  private final StripedCounter total = new StripedCounter();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long millis) {
+    if (millis < 0) {
+      millis = 0;
+    }
+    buckets.incrementAndGet(bucketOf(millis));
+    count.increment();
+    total.add(millis);
+    long current = max.get();
+    while (millis > current && !max.compareAndSet(current, millis)) {
+      current = max.get();
+    }
+  }
+
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new Snapshot(counts, count.sum(), total.sum(), max.get());
+  }
+
+  static int bucketOf(long millis) {
+    int bucket = 64 - Long.numberOfLeadingZeros(millis);
+    return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+  }
+
+  /*
+   * Upper bound (exclusive) of the values counted in a bucket
+   */
+  public static long bucketUpperBound(int bucket) {
+    return 1L << bucket;
+  }
+
+  /**
+   * Immutable view of a histogram at one point in time.
+   * The counters are read one after the other, so under load they may be off by the updates made during the read.
+   */
+  public static class Snapshot {
+
+    private final long[] bucketCounts;
+    private final long count;
+    private final long total;
+    private final long max;
+
+    Snapshot(long[] bucketCounts, long count, long total, long max) {
+      this.bucketCounts = bucketCounts;
+      this.count = count;
+      this.total = total;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public long getMean() {
+      return count == 0 ? 0 : total / count;
+    }
+
+    public long[] getBucketCounts() {
+      return bucketCounts.clone();
+    }
+
+    /*
+     * Estimates a percentile as the upper bound of the bucket it falls in, capped by the maximum seen
+     *
+     * @param percentile - a value between 0 and 100
+     * @return the estimated latency in milliseconds
+     */
+    public long getPercentile(double percentile) {
+      long seen = 0;
+      for (long c : bucketCounts) {
+        seen += c;
+      }
+      if (seen == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(seen * percentile / 100.0);
+      long cumulative = 0;
+      for (int i = 0; i < bucketCounts.length; i++) {
+        cumulative += bucketCounts[i];
+        if (cumulative >= rank) {
+          return i == 0 ? 0 : Math.min(bucketUpperBound(i) - 1, max);
+        }
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(50) + ", p99=" + getPercentile(99) + ", max=" + max;
+    }
+
+  }
+
+}
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A physical connection tracked by a {@link ConcurrentConnectionBag}.
+ * The entry outlives the {@link PooledConnection} wrappers that are handed out for it.
+ */
+class PoolEntry {
+
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_REMOVED = -1;
+
+  private final Connection realConnection;
+  private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+  private final AtomicReference<PooledConnection> holder = new AtomicReference<PooledConnection>();
+  private final long createdTimestamp;
+  private volatile long lastUsedTimestamp;
+
+  public PoolEntry(Connection realConnection) {
+    this.realConnection = realConnection;
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  public Connection getRealConnection() {
+    return realConnection;
+  }
+
+  public int getState() {
+    return state.get();
+  }
+
+  public void setState(int newState) {
+    state.set(newState);
+  }
+
+  public boolean compareAndSetState(int expect, int update) {
+    return state.compareAndSet(expect, update);
+  }
+
+  /*
+   * Getter for the pooled connection that currently owns this entry
+   *
+   * @return the owner or null if the entry is idle
+   */
+  public PooledConnection getHolder() {
+    return holder.get();
+  }
+
+  public void setHolder(PooledConnection conn) {
+    holder.set(conn);
+  }
+
+  /*
+   * Atomically hands the entry from one pooled connection to another.
+   * Used both to return a connection and to claim an overdue one, so only one of them wins.
+   */
+  public boolean compareAndSetHolder(PooledConnection expect, PooledConnection update) {
+    return holder.compareAndSet(expect, update);
+  }
+
+  public long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  public long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  public void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+}
@@ -19,6 +19,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * Statistics of a pooled data source.
+ * Counters are striped and none of the getters take the lock the pool uses, so they can be polled freely.
+ * They used to be protected long fields; subclasses now update them through the record methods and
+ * read them through the getters.
+ *
  * @author Clinton Begin
  */
 public class PoolState {
@@ -27,63 +32,153 @@ public class PoolState {
 
   protected final List<PooledConnection> idleConnections = new ArrayList<PooledConnection>();
   protected final List<PooledConnection> activeConnections = new ArrayList<PooledConnection>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  private final StripedCounter requestCount = new StripedCounter();
+  private final StripedCounter accumulatedRequestTime = new StripedCounter();
+  private final StripedCounter accumulatedCheckoutTime = new StripedCounter();
+  private final StripedCounter claimedOverdueConnectionCount = new StripedCounter();
+  private final StripedCounter accumulatedCheckoutTimeOfOverdueConnections = new StripedCounter();
+  private final StripedCounter accumulatedWaitTime = new StripedCounter();
+  private final StripedCounter hadToWaitCount = new StripedCounter();
+  private final StripedCounter badConnectionCount = new StripedCounter();
+  private final StripedCounter statementCacheHitCount = new StripedCounter();
+  private final StripedCounter statementCacheMissCount = new StripedCounter();
+  private final StripedCounter statementCacheEvictionCount = new StripedCounter();
+  protected final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+  protected final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
+  protected final LatencyHistogram creationTimeHistogram = new LatencyHistogram();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  protected void recordRequest(long requestTime) {
+    requestCount.increment();
+    accumulatedRequestTime.add(requestTime);
+  }
+
+  protected void recordHadToWait() {
+    hadToWaitCount.increment();
+  }
+
+  protected void recordWait(long waitTime) {
+    accumulatedWaitTime.add(waitTime);
+    waitTimeHistogram.record(waitTime);
+  }
+
+  protected void recordCheckout(long checkoutTime) {
+    accumulatedCheckoutTime.add(checkoutTime);
+    checkoutTimeHistogram.record(checkoutTime);
+  }
+
+  protected void recordOverdueCheckout(long checkoutTime) {
+    claimedOverdueConnectionCount.increment();
+    accumulatedCheckoutTimeOfOverdueConnections.add(checkoutTime);
+    recordCheckout(checkoutTime);
+  }
+
+  protected void recordCreation(long creationTime) {
+    creationTimeHistogram.record(creationTime);
+  }
+
+  protected void recordBadConnection() {
+    badConnectionCount.increment();
+  }
+
+  protected void recordStatementCacheHit() {
+    statementCacheHitCount.increment();
+  }
+
+  protected void recordStatementCacheMiss() {
+    statementCacheMissCount.increment();
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  protected void recordStatementCacheEviction() {
+    statementCacheEvictionCount.increment();
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
 
+  public long getAverageRequestTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedRequestTime.sum() / requests;
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount.sum();
+    return waits == 0 ? 0 : accumulatedWaitTime.sum() / waits;
+
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getHadToWaitCount() {
+    return hadToWaitCount.sum();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getBadConnectionCount() {
+    return badConnectionCount.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount.sum();
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount.sum();
   }
 
+  public long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCount.sum();
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.sum();
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCount.sum();
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.sum() / claimed;
+  }
+
+  public long getAverageCheckoutTime() {
+    long requests = requestCount.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTime.sum() / requests;
+  }
 
-  public synchronized int getIdleConnectionCount() {
+  /*
+   * The list sizes are read without the pool lock, so the value may be momentarily stale
+   */
+  public int getIdleConnectionCount() {
     return idleConnections.size();
   }
 
-  public synchronized int getActiveConnectionCount() {
+  public int getActiveConnectionCount() {
     return activeConnections.size();
   }
 
+  public LatencyHistogram.Snapshot getWaitTimeHistogram() {
+    return waitTimeHistogram.snapshot();
+  }
+
+  public LatencyHistogram.Snapshot getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram.snapshot();
+  }
+
+  public LatencyHistogram.Snapshot getCreationTimeHistogram() {
+    return creationTimeHistogram.snapshot();
+  }
+
+  /*
+   * Reads all statistics at once without blocking borrowers
+   *
+   * @return an immutable copy of the current statistics
+   */
+  public PoolStateSnapshot snapshot() {
+    return new PoolStateSnapshot(this);
+  }
+
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -97,6 +192,11 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolLeakedCheckoutTime         ").append(dataSource.poolLeakedCheckoutTime);
+    builder.append("\n poolStatementCacheSize         ").append(dataSource.poolStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -108,6 +208,12 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+    builder.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
+    builder.append("\n statementCacheEvictions        ").append(getStatementCacheEvictionCount());
+    builder.append("\n waitTime                       ").append(getWaitTimeHistogram());
+    builder.append("\n checkoutTime                   ").append(getCheckoutTimeHistogram());
+    builder.append("\n creationTime                   ").append(getCreationTimeHistogram());
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Immutable copy of the statistics of a pool, meant to be exported to a metrics system.
+ */
+public class PoolStateSnapshot {
+
+  private final long timestamp;
+  private final int activeConnectionCount;
+  private final int idleConnectionCount;
+  private final long requestCount;
+  private final long averageRequestTime;
+  private final long averageCheckoutTime;
+  private final long claimedOverdueConnectionCount;
+  private final long averageOverdueCheckoutTime;
+  private final long hadToWaitCount;
+  private final long averageWaitTime;
+  private final long badConnectionCount;
+  private final long statementCacheHitCount;
+  private final long statementCacheMissCount;
+  private final long statementCacheEvictionCount;
+  private final LatencyHistogram.Snapshot waitTimeHistogram;
+  private final LatencyHistogram.Snapshot checkoutTimeHistogram;
+  private final LatencyHistogram.Snapshot creationTimeHistogram;
+
+  PoolStateSnapshot(PoolState state) {
+    this.timestamp = System.currentTimeMillis();
+    this.activeConnectionCount = state.getActiveConnectionCount();
+    this.idleConnectionCount = state.getIdleConnectionCount();
+    this.requestCount = state.getRequestCount();
+    this.averageRequestTime = state.getAverageRequestTime();
+    this.averageCheckoutTime = state.getAverageCheckoutTime();
+    this.claimedOverdueConnectionCount = state.getClaimedOverdueConnectionCount();
+    this.averageOverdueCheckoutTime = state.getAverageOverdueCheckoutTime();
+    this.hadToWaitCount = state.getHadToWaitCount();
+    this.averageWaitTime = state.getAverageWaitTime();
+    this.badConnectionCount = state.getBadConnectionCount();
+    this.statementCacheHitCount = state.getStatementCacheHitCount();
+    this.statementCacheMissCount = state.getStatementCacheMissCount();
+    this.statementCacheEvictionCount = state.getStatementCacheEvictionCount();
+    this.waitTimeHistogram = state.getWaitTimeHistogram();
+    this.checkoutTimeHistogram = state.getCheckoutTimeHistogram();
+    this.creationTimeHistogram = state.getCreationTimeHistogram();
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public int getActiveConnectionCount() {
+    return activeConnectionCount;
+  }
+
+  public int getIdleConnectionCount() {
+    return idleConnectionCount;
+  }
+
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  public long getAverageRequestTime() {
+    return averageRequestTime;
+  }
+
+  public long getAverageCheckoutTime() {
+    return averageCheckoutTime;
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount;
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    return averageOverdueCheckoutTime;
+  }
+
+  public long getHadToWaitCount() {
+    return hadToWaitCount;
+  }
+
+  public long getAverageWaitTime() {
+    return averageWaitTime;
+  }
+
+  public long getBadConnectionCount() {
+    return badConnectionCount;
+  }
+
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount;
+  }
+
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount;
+  }
+
+  public long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCount;
+  }
+
+  public LatencyHistogram.Snapshot getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  public LatencyHistogram.Snapshot getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram;
+  }
+
+  public LatencyHistogram.Snapshot getCreationTimeHistogram() {
+    return creationTimeHistogram;
+  }
+
+}
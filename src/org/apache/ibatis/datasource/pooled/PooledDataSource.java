@@ -16,6 +16,7 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
@@ -23,7 +24,14 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -41,9 +49,9 @@ public class PooledDataSource implements DataSource {
 
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
-  private final PoolState state = new PoolState(this);
+  private final PoolState state = newPoolState();
 
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
   protected int poolMaximumActiveConnections = 10;
@@ -53,8 +61,16 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled = false;
   protected int poolPingConnectionsNotUsedFor = 0;
+  protected int poolHousekeepingInterval = 0;
+  protected int poolMaximumLifetime = 0;
+  protected int poolMinimumIdleConnections = 0;
+  protected int poolLeakedCheckoutTime = 0;
+  protected int poolStatementCacheSize = 0;
 
-  private int expectedConnectionTypeCode;
+  protected int expectedConnectionTypeCode;
+
+  private final Object housekeeperLock = new Object();
+  private ScheduledExecutorService housekeeper;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -221,6 +237,61 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * How often the background housekeeper runs. While it is enabled idle connections
+   * are validated by the housekeeper and borrowers never run the ping query themselves.
+   *
+   * @param milliseconds the delay between two runs, 0 disables the housekeeper
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    forceCloseAll();
+    scheduleHousekeeping();
+  }
+
+  /*
+   * The maximum time a physical connection is kept in the pool, counted from its creation.
+   * Older connections are closed when they are returned or found idle by the housekeeper.
+   *
+   * @param milliseconds the maximum lifetime, 0 for no limit
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /*
+   * The number of idle connections the housekeeper keeps open ahead of demand
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    forceCloseAll();
+  }
+
+  /*
+   * The time after which the housekeeper considers a checked out connection leaked
+   * and takes it back, even if nobody is waiting for a connection.
+   *
+   * @param milliseconds the checkout time, 0 disables leak reclamation
+   */
+  public void setPoolLeakedCheckoutTime(int milliseconds) {
+    this.poolLeakedCheckoutTime = milliseconds;
+    forceCloseAll();
+  }
+
+  /*
+   * The number of prepared statements each connection keeps open after they are closed,
+   * so later sessions on the same connection reuse them.
+   *
+   * @param poolStatementCacheSize the statements per connection, 0 disables the cache
+   */
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -277,6 +348,26 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolLeakedCheckoutTime() {
+    return poolLeakedCheckoutTime;
+  }
+
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
@@ -321,7 +412,30 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  /*
+   * Creates the state holder of this pool. Subclasses that keep their connections
+   * somewhere else than the PoolState lists can return a specialized state.
+   *
+   * @return the pool state
+   */
+  protected PoolState newPoolState() {
+    return new PoolState(this);
+  }
+
+  /*
+   * Opens a new physical connection, with its statement cache when one is configured
+   *
+   * @return the connection the pool will hand out and close
+   */
+  protected Connection newRealConnection() throws SQLException {
+    Connection connection = dataSource.getConnection();
+    if (poolStatementCacheSize > 0) {
+      connection = StatementCachingConnection.newInstance(connection, poolStatementCacheSize, state);
+    }
+    return connection;
+  }
+
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -330,8 +444,9 @@ public class PooledDataSource implements DataSource {
     synchronized (state) {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isExpired(conn.getCreatedTimestamp())) {
+          state.recordCheckout(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -345,7 +460,7 @@ public class PooledDataSource implements DataSource {
           }
           state.notifyAll();
         } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordCheckout(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -359,12 +474,12 @@ public class PooledDataSource implements DataSource {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
-        state.badConnectionCount++;
+        state.recordBadConnection();
       }
     }
   }
 
-  private PooledConnection popConnection(String username, String password) throws SQLException {
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
@@ -382,7 +497,9 @@ public class PooledDataSource implements DataSource {
           // Pool does not have available connection
           if (state.activeConnections.size() < poolMaximumActiveConnections) {
             // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
+            long ct = System.currentTimeMillis();
+            conn = new PooledConnection(newRealConnection(), this);
+            state.recordCreation(System.currentTimeMillis() - ct);
             if (log.isDebugEnabled()) {
               log.debug("Created connection " + conn.getRealHashCode() + ".");
             }
@@ -392,9 +509,7 @@ public class PooledDataSource implements DataSource {
             long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
             if (longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              state.recordOverdueCheckout(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 oldestActiveConnection.getRealConnection().rollback();
@@ -408,7 +523,7 @@ public class PooledDataSource implements DataSource {
               // Must wait
               try {
                 if (!countedWait) {
-                  state.hadToWaitCount++;
+                  state.recordHadToWait();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
@@ -416,7 +531,7 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                state.recordWait(System.currentTimeMillis() - wt);
               } catch (InterruptedException e) {
                 break;
               }
@@ -432,13 +547,12 @@ public class PooledDataSource implements DataSource {
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.recordRequest(System.currentTimeMillis() - t);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
-            state.badConnectionCount++;
+            state.recordBadConnection();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
@@ -481,36 +595,48 @@ public class PooledDataSource implements DataSource {
       result = false;
     }
 
-    if (result) {
-      if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+    if (result && !isHousekeeping()) {
+      result = pingIfUnused(conn);
+    }
+    return result;
+  }
+
+  /*
+   * Runs the ping query if pinging is enabled and the connection has not been used recently
+   *
+   * @param conn - the connection to check
+   * @return True if the connection is still usable
+   */
+  protected boolean pingIfUnused(PooledConnection conn) {
+    boolean result = true;
+    if (poolPingEnabled) {
+      if (isPingDue(conn)) {
+        try {
+          if (log.isDebugEnabled()) {
+            log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+          }
+          Connection realConn = conn.getRealConnection();
+          Statement statement = realConn.createStatement();
+          ResultSet rs = statement.executeQuery(poolPingQuery);
+          rs.close();
+          statement.close();
+          if (!realConn.getAutoCommit()) {
+            realConn.rollback();
+          }
+          result = true;
+          if (log.isDebugEnabled()) {
+            log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+          }
+        } catch (Exception e) {
+          log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
           try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            Connection realConn = conn.getRealConnection();
-            Statement statement = realConn.createStatement();
-            ResultSet rs = statement.executeQuery(poolPingQuery);
-            rs.close();
-            statement.close();
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
+            conn.getRealConnection().close();
+          } catch (Exception e2) {
+            //ignore
+          }
+          result = false;
+          if (log.isDebugEnabled()) {
+            log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
           }
         }
       }
@@ -518,6 +644,147 @@ public class PooledDataSource implements DataSource {
     return result;
   }
 
+  protected boolean isPingDue(PooledConnection conn) {
+    return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor;
+  }
+
+  protected boolean isHousekeeping() {
+    return poolHousekeepingInterval > 0;
+  }
+
+  /*
+   * Checks a connection against poolMaximumLifetime
+   *
+   * @param createdTimestamp - the time the physical connection was opened
+   * @return True if the connection should not be pooled anymore
+   */
+  protected boolean isExpired(long createdTimestamp) {
+    return poolMaximumLifetime > 0 && System.currentTimeMillis() - createdTimestamp > poolMaximumLifetime;
+  }
+
+  /*
+   * One pass of the background housekeeper: validates and expires idle connections,
+   * takes back leaked checkouts and opens connections up to poolMinimumIdleConnections.
+   * Idle connections are taken out of the pool while they are checked so borrowers never wait on a ping.
+   */
+  protected void housekeep() throws SQLException {
+    List<PooledConnection> candidates = new ArrayList<PooledConnection>();
+    List<PooledConnection> leaked = new ArrayList<PooledConnection>();
+    synchronized (state) {
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (isExpired(conn.getCreatedTimestamp()) || isPingDue(conn)) {
+          it.remove();
+          candidates.add(conn);
+        }
+      }
+      if (poolLeakedCheckoutTime > 0) {
+        for (Iterator<PooledConnection> it = state.activeConnections.iterator(); it.hasNext();) {
+          PooledConnection conn = it.next();
+          long checkoutTime = conn.getCheckoutTime();
+          if (checkoutTime > poolLeakedCheckoutTime) {
+            it.remove();
+            state.recordOverdueCheckout(checkoutTime);
+            conn.invalidate();
+            leaked.add(conn);
+          }
+        }
+      }
+    }
+
+    for (PooledConnection conn : candidates) {
+      if (isExpired(conn.getCreatedTimestamp())) {
+        closeQuietly(conn.getRealConnection());
+        if (log.isDebugEnabled()) {
+          log.debug("Closed expired connection " + conn.getRealHashCode() + ".");
+        }
+      } else if (pingIfUnused(conn)) {
+        returnToIdle(conn);
+      } else {
+        state.recordBadConnection();
+      }
+    }
+
+    for (PooledConnection conn : leaked) {
+      log.warn("Reclaimed connection " + conn.getRealHashCode() + " that was checked out for more than "
+          + poolLeakedCheckoutTime + " milliseconds. It was probably never closed.");
+      if (conn.getConnectionTypeCode() != expectedConnectionTypeCode || isExpired(conn.getCreatedTimestamp())) {
+        closeQuietly(conn.getRealConnection());
+        continue;
+      }
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+      newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+      newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+      returnToIdle(newConn);
+    }
+
+    while (true) {
+      synchronized (state) {
+        if (state.idleConnections.size() >= Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections)
+            || state.idleConnections.size() + state.activeConnections.size() >= poolMaximumActiveConnections) {
+          break;
+        }
+      }
+      long ct = System.currentTimeMillis();
+      PooledConnection conn = new PooledConnection(newRealConnection(), this);
+      state.recordCreation(System.currentTimeMillis() - ct);
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+      if (!returnToIdle(conn)) {
+        break;
+      }
+    }
+  }
+
+  private boolean returnToIdle(PooledConnection conn) {
+    synchronized (state) {
+      if (state.idleConnections.size() < poolMaximumIdleConnections
+          && state.idleConnections.size() + state.activeConnections.size() < poolMaximumActiveConnections) {
+        state.idleConnections.add(conn);
+        state.notifyAll();
+        return true;
+      }
+    }
+    closeQuietly(conn.getRealConnection());
+    return false;
+  }
+
+  protected void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private void scheduleHousekeeping() {
+    synchronized (housekeeperLock) {
+      if (housekeeper != null) {
+        housekeeper.shutdownNow();
+        housekeeper = null;
+      }
+      if (poolHousekeepingInterval > 0) {
+        housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "PooledDataSource-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+        housekeeper.scheduleWithFixedDelay(new Housekeeper(this, housekeeper),
+            poolHousekeepingInterval, poolHousekeepingInterval, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
   /*
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -535,6 +802,11 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void finalize() throws Throwable {
+    synchronized (housekeeperLock) {
+      if (housekeeper != null) {
+        housekeeper.shutdownNow();
+      }
+    }
     forceCloseAll();
     super.finalize();
   }
@@ -551,4 +823,33 @@ public class PooledDataSource implements DataSource {
     return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME); // requires JDK version 1.6
   }
 
+  /*
+   * Scheduled task that only holds the data source weakly, so an abandoned pool can still be collected
+   */
+  private static class Housekeeper implements Runnable {
+
+    private final WeakReference<PooledDataSource> dataSourceRef;
+    private final ScheduledExecutorService executor;
+
+    public Housekeeper(PooledDataSource dataSource, ScheduledExecutorService executor) {
+      this.dataSourceRef = new WeakReference<PooledDataSource>(dataSource);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource dataSource = dataSourceRef.get();
+      if (dataSource == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        dataSource.housekeep();
+      } catch (Exception e) {
+        log.warn("Housekeeping of the connection pool failed: " + e.getMessage());
+      }
+    }
+
+  }
+
 }
@@ -0,0 +1,236 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Wraps a real connection of the pool and keeps its prepared statements open after they are closed,
+ * so the next session preparing the same SQL on this connection gets them back without a new prepare.
+ * The pool wraps the real connection once, so the cache lives as long as the physical connection.
+ * <p>
+ * Statements are keyed by the prepareStatement arguments: SQL, result set type and concurrency,
+ * holdability and key generation mode. A statement is out of the cache while it is in use, and is put
+ * back on close with its parameters cleared and its timeout, fetch size and max rows restored. The
+ * least recently returned statement is really closed when the cache is full.
+ */
+class StatementCachingConnection implements InvocationHandler {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
+  private static final Class<?>[] STATEMENT_IFACES = new Class<?>[] { PreparedStatement.class };
+  private static final Set<String> RESTORED_SETTINGS = new HashSet<String>(
+      Arrays.asList("setQueryTimeout", "setFetchSize", "setMaxRows", "setFetchDirection", "setMaxFieldSize"));
+  private static final Set<String> UNRESTORABLE_SETTINGS = new HashSet<String>(
+      Arrays.asList("setEscapeProcessing", "setCursorName", "setPoolable", "setLargeMaxRows"));
+
+  private final Connection connection;
+  private final PoolState state;
+  private final Map<String, PreparedStatement> statements;
+  private boolean closed;
+
+  private StatementCachingConnection(Connection connection, final int size, PoolState state) {
+    this.connection = connection;
+    this.state = state;
+    this.statements = new LinkedHashMap<String, PreparedStatement>(16, .75F, true) {
+      private static final long serialVersionUID = 4267176411845948333L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        boolean tooBig = size() > size;
+        if (tooBig) {
+          closeQuietly(eldest.getValue());
+          StatementCachingConnection.this.state.recordStatementCacheEviction();
+        }
+        return tooBig;
+      }
+    };
+  }
+
+  public static Connection newInstance(Connection connection, int size, PoolState state) {
+    InvocationHandler handler = new StatementCachingConnection(connection, size, state);
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, handler);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    try {
+      String methodName = method.getName();
+      if ("prepareStatement".equals(methodName)) {
+        return prepareStatement(method, args);
+      } else if ("close".equals(methodName)) {
+        closeStatements();
+      } else if ("hashCode".equals(methodName) && args == null) {
+        return connection.hashCode();
+      } else if ("equals".equals(methodName) && args != null && args.length == 1) {
+        return proxy == args[0];
+      }
+      return method.invoke(connection, args);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private Object prepareStatement(Method method, Object[] args) throws Throwable {
+    String key = statementKey(args);
+    PreparedStatement statement;
+    synchronized (statements) {
+      statement = statements.remove(key);
+    }
+    if (statement != null) {
+      state.recordStatementCacheHit();
+    } else {
+      state.recordStatementCacheMiss();
+      statement = (PreparedStatement) method.invoke(connection, args);
+    }
+    CachedStatement handler = new CachedStatement(key, statement);
+    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), STATEMENT_IFACES, handler);
+  }
+
+  private String statementKey(Object[] args) {
+    StringBuilder key = new StringBuilder((String) args[0]);
+    for (int i = 1; i < args.length; i++) {
+      key.append('\u0000');
+      if (args[i] instanceof int[]) {
+        key.append(Arrays.toString((int[]) args[i]));
+      } else if (args[i] instanceof Object[]) {
+        key.append(Arrays.toString((Object[]) args[i]));
+      } else {
+        key.append(args[i]);
+      }
+    }
+    return key.toString();
+  }
+
+  private void release(CachedStatement cached) {
+    PreparedStatement statement = cached.statement;
+    if (cached.reusable) {
+      try {
+        ResultSet rs = statement.getResultSet();
+        if (rs != null) {
+          rs.close();
+        }
+        statement.clearParameters();
+        statement.clearBatch();
+        statement.clearWarnings();
+        for (Map.Entry<Method, Object> entry : cached.originalSettings.entrySet()) {
+          entry.getKey().invoke(statement, entry.getValue());
+        }
+        synchronized (statements) {
+          if (!closed) {
+            PreparedStatement duplicate = statements.put(cached.key, statement);
+            if (duplicate != null && duplicate != statement) {
+              // the same SQL was in use twice at once
+              closeQuietly(duplicate);
+            }
+            return;
+          }
+        }
+      } catch (Exception e) {
+        // not reusable, close it below
+      }
+    }
+    closeQuietly(statement);
+  }
+
+  private void closeStatements() {
+    synchronized (statements) {
+      closed = true;
+      Iterator<PreparedStatement> iterator = statements.values().iterator();
+      while (iterator.hasNext()) {
+        closeQuietly(iterator.next());
+        iterator.remove();
+      }
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * The statement handed out for one use. Closing it gives the statement back to the cache.
+   */
+  private class CachedStatement implements InvocationHandler {
+
+    private final String key;
+    private final PreparedStatement statement;
+    private final Map<Method, Object> originalSettings = new HashMap<Method, Object>();
+    private boolean reusable = true;
+    private boolean released;
+
+    CachedStatement(String key, PreparedStatement statement) {
+      this.key = key;
+      this.statement = statement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        if (!released) {
+          released = true;
+          release(this);
+        }
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return released || statement.isClosed();
+      } else if ("hashCode".equals(methodName) && args == null) {
+        return System.identityHashCode(proxy);
+      } else if ("equals".equals(methodName) && args != null && args.length == 1) {
+        return proxy == args[0];
+      } else if (released && !Object.class.equals(method.getDeclaringClass())) {
+        throw new SQLException("Statement is closed.");
+      }
+      try {
+        if (RESTORED_SETTINGS.contains(methodName) && args != null && args.length == 1) {
+          rememberSetting(method);
+        } else if (UNRESTORABLE_SETTINGS.contains(methodName)) {
+          reusable = false;
+        }
+        return method.invoke(statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+    private void rememberSetting(Method setter) throws Exception {
+      if (!originalSettings.containsKey(setter)) {
+        Method getter = PreparedStatement.class.getMethod("get" + setter.getName().substring(3));
+        originalSettings.put(setter, getter.invoke(statement));
+      }
+    }
+  }
+
+}
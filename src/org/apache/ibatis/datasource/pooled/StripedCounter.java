@@ -0,0 +1,64 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that spreads concurrent updates over several padded cells so that
+ * threads adding to it do not contend on a single memory location.
+ * Reads sum the cells and never block writers.
+ */
+class StripedCounter {
+
+  // one cell per cache line
+  private static final int PADDING = 8;
+  private static final int STRIPES = stripes();
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  public void increment() {
+    add(1);
+  }
+
+  public void add(long x) {
+    cells.getAndAdd(index(), x);
+  }
+
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * PADDING);
+    }
+    return sum;
+  }
+
+  private static int index() {
+    long id = Thread.currentThread().getId();
+    int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return ((h ^ (h >>> 16)) & (STRIPES - 1)) * PADDING;
+  }
+
+  private static int stripes() {
+    int n = 1;
+    int processors = Runtime.getRuntime().availableProcessors();
+    while (n < processors && n < 64) {
+      n <<= 1;
+    }
+    return n;
+  }
+
+}
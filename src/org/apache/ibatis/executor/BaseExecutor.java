@@ -20,11 +20,12 @@ import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOL
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
-import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.jdbc.ConnectionLogger;
@@ -53,8 +54,9 @@ public abstract class BaseExecutor implements Executor {
   protected Executor wrapper;
 
   protected ConcurrentLinkedQueue<DeferredLoad> deferredLoads;
-  protected PerpetualCache localCache;
-  protected PerpetualCache localOutputParameterCache;
+  // PerpetualCaches until the local cache could be bounded, subclasses should only rely on the Cache methods
+  protected LocalCache localCache;
+  protected LocalCache localOutputParameterCache;
   protected Configuration configuration;
 
   protected int queryStack = 0;
@@ -63,8 +65,8 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<DeferredLoad>();
-    this.localCache = new PerpetualCache("LocalCache");
-    this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    this.localCache = new LocalCache("LocalCache", configuration);
+    this.localOutputParameterCache = new LocalCache("LocalOutputParameterCache", configuration);
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
@@ -92,6 +94,9 @@ public abstract class BaseExecutor implements Executor {
       // Ignore.  There's nothing that can be done at this point.
       log.warn("Unexpected exception on closing transaction.  Cause: " + e);
     } finally {
+      if (log.isDebugEnabled() && localCache != null) {
+        log.debug("Closing executor, " + localCache);
+      }
       transaction = null;
       deferredLoads = null;
       localCache = null;
@@ -130,10 +135,35 @@ public abstract class BaseExecutor implements Executor {
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
     BoundSql boundSql = ms.getBoundSql(parameter);
+    if (boundSql.getChunks() != null) {
+      return queryChunks(ms, parameter, rowBounds, resultHandler, boundSql.getChunks());
+    }
     CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
     return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
  }
 
+  private <E> List<E> queryChunks(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, List<BoundSql> chunks) throws SQLException {
+    checkChunkedRowBounds(ms, rowBounds);
+    List<E> list = new ArrayList<E>();
+    for (BoundSql chunk : chunks) {
+      CacheKey key = createCacheKey(ms, parameter, rowBounds, chunk);
+      List<E> chunkList = query(ms, parameter, rowBounds, resultHandler, key, chunk);
+      if (chunkList != null) {
+        list.addAll(chunkList);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Offsets and limits cannot be applied across the chunks of a split statement.
+   */
+  static void checkChunkedRowBounds(MappedStatement ms, RowBounds rowBounds) {
+    if (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT) {
+      throw new ExecutorException("Statement '" + ms.getId() + "' was split into chunks by a bucketed foreach and cannot be used with RowBounds.");
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
@@ -141,13 +171,17 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
+    if (boundSql.getChunks() != null) {
+      // nested selects and lazy loaders arrive here with a bound statement of their own
+      return queryChunks(ms, parameter, rowBounds, resultHandler, boundSql.getChunks());
+    }
     if (queryStack == 0 && ms.isFlushCacheRequired()) {
       clearLocalCache();
     }
     List<E> list;
     try {
       queryStack++;
-      list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      list = resultHandler == null ? (List<E>) localCache.lookup(key) : null;
       if (list != null) {
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
@@ -162,6 +196,9 @@ public abstract class BaseExecutor implements Executor {
       }
       // issue #601
       deferredLoads.clear();
+      // nothing refers to the entries of this query any more, so they may be evicted
+      localCache.release();
+      localOutputParameterCache.release();
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
@@ -170,6 +207,19 @@ public abstract class BaseExecutor implements Executor {
     return list;
   }
 
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    ErrorContext.instance().resource(ms.getResource()).activity("executing a cursor query").object(ms.getId());
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    if (boundSql.getChunks() != null) {
+      throw new ExecutorException("Statement '" + ms.getId() + "' was split into chunks by a bucketed foreach and cannot be returned as a cursor.");
+    }
+    return doQueryCursor(ms, parameter, rowBounds, boundSql);
+  }
+
   @Override
   public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
     if (closed) {
@@ -221,6 +271,13 @@ public abstract class BaseExecutor implements Executor {
     return cacheKey;
   }    
 
+  /**
+   * @return the session-local cache, with its hit and miss counters
+   */
+  public LocalCache getLocalCache() {
+    return localCache;
+  }
+
   @Override
   public boolean isCached(MappedStatement ms, CacheKey key) {
     return localCache.getObject(key) != null;
@@ -269,6 +326,9 @@ public abstract class BaseExecutor implements Executor {
   protected abstract <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException;
 
+  protected abstract <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql)
+      throws SQLException;
+
   protected void closeStatement(Statement statement) {
     if (statement != null) {
       try {
@@ -304,9 +364,9 @@ public abstract class BaseExecutor implements Executor {
     } finally {
       localCache.removeObject(key);
     }
-    localCache.putObject(key, list);
+    localCache.putObject(key, list, ms.isUseLocalCache());
     if (ms.getStatementType() == StatementType.CALLABLE) {
-      localOutputParameterCache.putObject(key, parameter);
+      localOutputParameterCache.putObject(key, parameter, ms.isUseLocalCache());
     }
     return list;
   }
@@ -331,7 +391,7 @@ public abstract class BaseExecutor implements Executor {
     private final String property;
     private final Class<?> targetType;
     private final CacheKey key;
-    private final PerpetualCache localCache;
+    private final LocalCache localCache;
     private final ObjectFactory objectFactory;
     private final ResultExtractor resultExtractor;
 
@@ -339,7 +399,7 @@ public abstract class BaseExecutor implements Executor {
     public DeferredLoad(MetaObject resultObject,
                         String property,
                         CacheKey key,
-                        PerpetualCache localCache,
+                        LocalCache localCache,
                         Configuration configuration,
                         Class<?> targetType) {
       this.resultObject = resultObject;
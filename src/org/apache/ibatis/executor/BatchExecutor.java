@@ -15,26 +15,59 @@
  */
 package org.apache.ibatis.executor;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
+ * Runs updates as JDBC batches. By default rows are only added to the last statement, so a
+ * statement is reused only by consecutive updates with the same SQL.
+ * <p>
+ * With {@link Configuration#isBatchStatementGrouping()} one statement is kept per distinct SQL and
+ * rows are added to it even when other statements come in between (e.g. alternating parent and
+ * child inserts). The statements run in the order their SQL first appeared, so a statement must
+ * first appear after the ones it depends on. A change of command type (insert, update, delete)
+ * runs the statements collected so far before the new one is prepared.
+ * <p>
+ * A {@link BatchFlushPolicy}, for the session and per statement, sends the batches once enough rows,
+ * bytes or time have accumulated. The statements stay open and are reused for the next chunk.
+ * <p>
+ * With a {@link MultiRowInsertDialect} the rows of a plain prepared insert are not added to a JDBC
+ * batch. Their parameters are set, through the configured handlers, on a statement that only records
+ * them, and at the flush they are sent as multi-row inserts of at most
+ * {@link MultiRowInsertDialect#getMaxParameters()} parameters each.
+ *
  * @author Jeff Butler 
  */
 public class BatchExecutor extends BaseExecutor {
@@ -45,9 +78,26 @@ public class BatchExecutor extends BaseExecutor {
   private final List<BatchResult> batchResultList = new ArrayList<BatchResult>();
   private String currentSql;
   private MappedStatement currentStatement;
+  private final Map<CacheKey, Integer> statementIndexes = new HashMap<CacheKey, Integer>();
+  private final List<BatchResult> executedResults = new ArrayList<BatchResult>();
+  private SqlCommandType currentCommandType;
+  private int sequence;
+  // batches run since the last flush of the session, for the error messages
+  private int executedBatches;
+  private final BatchFlushPolicy flushPolicy;
+  private final List<Pending> pendingList = new ArrayList<Pending>();
+  private final List<List<RecordedRow>> multiRowList = new ArrayList<List<RecordedRow>>();
+  private int pendingRows;
+  private long pendingBytes;
+  private long pendingSince;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
+    this(configuration, transaction, configuration.getBatchFlushPolicy());
+  }
+
+  public BatchExecutor(Configuration configuration, Transaction transaction, BatchFlushPolicy flushPolicy) {
     super(configuration, transaction);
+    this.flushPolicy = flushPolicy == null ? BatchFlushPolicy.NONE : flushPolicy;
   }
 
   @Override
@@ -57,26 +107,276 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
+    int index = findStatement(ms, sql);
+    if (index >= 0 && multiRowList.get(index) != null) {
+      multiRowList.get(index).add(recordRow(handler, boundSql));
+      batchResultList.get(index).addParameterObject(parameterObject, sequence++);
+      autoFlush(ms, boundSql, parameterObject, index);
+      return BATCH_UPDATE_RETURN_VALUE;
+    } else if (index >= 0) {
+      stmt = statementList.get(index);
      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
-      batchResult.addParameterObject(parameterObject);
+      BatchResult batchResult = batchResultList.get(index);
+      batchResult.addParameterObject(parameterObject, sequence++);
+    } else if (isMultiRowInsert(ms, boundSql)) {
+      List<RecordedRow> rows = new ArrayList<RecordedRow>();
+      rows.add(recordRow(handler, boundSql));
+      index = addStatement(ms, sql, null, parameterObject, rows);
+      autoFlush(ms, boundSql, parameterObject, index);
+      return BATCH_UPDATE_RETURN_VALUE;
     } else {
       Connection connection = getConnection(ms.getStatementLog());
       stmt = handler.prepare(connection);
       handler.parameterize(stmt);    //fix Issues 322
-      currentSql = sql;
-      currentStatement = ms;
-      statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      index = addStatement(ms, sql, stmt, parameterObject, null);
     }
   // handler.parameterize(stmt);
     handler.batch(stmt);
+    autoFlush(ms, boundSql, parameterObject, index);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private int addStatement(MappedStatement ms, String sql, Statement stmt, Object parameterObject, List<RecordedRow> rows) {
+    currentSql = sql;
+    currentStatement = ms;
+    statementList.add(stmt);
+    BatchResult batchResult = new BatchResult(ms, sql);
+    batchResult.addParameterObject(parameterObject, sequence++);
+    batchResultList.add(batchResult);
+    pendingList.add(new Pending());
+    multiRowList.add(rows);
+    int index = statementList.size() - 1;
+    if (configuration.isBatchStatementGrouping()) {
+      statementIndexes.put(statementKey(ms, sql), index);
+    }
+    return index;
+  }
+
+  private boolean isMultiRowInsert(MappedStatement ms, BoundSql boundSql) {
+    MultiRowInsertDialect dialect = configuration.getMultiRowInsertDialect();
+    if (dialect == null
+        || ms.getSqlCommandType() != SqlCommandType.INSERT
+        || ms.getStatementType() != StatementType.PREPARED) {
+      return false;
+    }
+    // a selectKey has to run once per row
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    if (!Jdbc3KeyGenerator.class.equals(keyGeneratorType) && !NoKeyGenerator.class.equals(keyGeneratorType)) {
+      return false;
+    }
+    return dialect.rewrite(boundSql.getSql(), 1) != null;
+  }
+
+  /**
+   * Sets the parameters of a row now, so that later changes to the parameter object do not reach
+   * the rows already added.
+   */
+  private RecordedRow recordRow(StatementHandler handler, BoundSql boundSql) throws SQLException {
+    RecordedRow row = new RecordedRow(boundSql.getParameterMappings().size());
+    PreparedStatement recorder = row.newRecorder();
+    handler.parameterize(recorder);
+    handler.batch(recorder);
+    return row;
+  }
+
+  /**
+   * Inserts the rows of a statement with as few multi-row inserts as the parameter limit allows. The
+   * statement for full chunks is prepared once, the last smaller chunk gets its own.
+   */
+  private int[] executeMultiRowInsert(BatchResult batchResult, List<RecordedRow> rows) throws SQLException {
+    MultiRowInsertDialect dialect = configuration.getMultiRowInsertDialect();
+    MappedStatement ms = batchResult.getMappedStatement();
+    List<Object> parameterObjects = batchResult.getParameterObjects();
+    int total = rows.size();
+    int parametersPerRow = Math.max(1, rows.get(0).parameterCount);
+    int rowsPerStatement = Math.max(1, dialect.getMaxParameters() / parametersPerRow);
+    int[] updateCounts = new int[total];
+    Statement fullStatement = null;
+    try {
+      for (int from = 0; from < total; from += rowsPerStatement) {
+        int count = Math.min(rowsPerStatement, total - from);
+        Statement stmt;
+        if (count == rowsPerStatement && fullStatement != null) {
+          stmt = fullStatement;
+        } else {
+          stmt = prepareMultiRowInsert(ms, dialect.rewrite(batchResult.getSql(), count));
+          if (count == rowsPerStatement) {
+            fullStatement = stmt;
+          }
+        }
+        try {
+          int offset = 0;
+          for (int i = from; i < from + count; i++) {
+            RecordedRow row = rows.get(i);
+            row.replay((PreparedStatement) stmt, offset);
+            offset += row.parameterCount;
+          }
+          int updated = ((PreparedStatement) stmt).executeUpdate();
+          Arrays.fill(updateCounts, from, from + count, updated == count ? 1 : Statement.SUCCESS_NO_INFO);
+          if (Jdbc3KeyGenerator.class.equals(ms.getKeyGenerator().getClass())) {
+            ((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, parameterObjects.subList(from, from + count));
+          }
+        } catch (SQLException e) {
+          throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, from), e);
+        } finally {
+          if (stmt != fullStatement) {
+            closeStatement(stmt);
+          }
+        }
+      }
+    } finally {
+      closeStatement(fullStatement);
+    }
+    return updateCounts;
+  }
+
+  private Statement prepareMultiRowInsert(MappedStatement ms, String sql) throws SQLException {
+    BoundSql boundSql = new BoundSql(configuration, sql, Collections.<ParameterMapping>emptyList(), null);
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, null, RowBounds.DEFAULT, null, boundSql);
+    return handler.prepare(getConnection(ms.getStatementLog()));
+  }
+
+  private void autoFlush(MappedStatement ms, BoundSql boundSql, Object parameterObject, int index) throws SQLException {
+    BatchFlushPolicy statementPolicy = ms.getBatchFlushPolicy();
+    if (!flushPolicy.isEnabled() && statementPolicy == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    long rowBytes = 0;
+    if (flushPolicy.getBytes() > 0 || statementPolicy != null && statementPolicy.getBytes() > 0) {
+      rowBytes = estimateBytes(boundSql, parameterObject);
+    }
+    Pending pending = pendingList.get(index);
+    if (pending.rows++ == 0) {
+      pending.since = now;
+    }
+    pending.bytes += rowBytes;
+    if (pendingRows++ == 0) {
+      pendingSince = now;
+    }
+    pendingBytes += rowBytes;
+    if (flushPolicy.isReached(pendingRows, pendingBytes, pendingSince, now)
+        || statementPolicy != null && statementPolicy.isReached(pending.rows, pending.bytes, pending.since, now)) {
+      executeStatements(true);
+    }
+  }
+
+  /**
+   * A rough size of the parameters of a row, read the same way as the parameter handler does.
+   */
+  private long estimateBytes(BoundSql boundSql, Object parameterObject) {
+    long size = 16;
+    MetaObject metaObject = null;
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      String propertyName = parameterMapping.getProperty();
+      Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      if (value instanceof String) {
+        size += 2 * ((String) value).length();
+      } else if (value instanceof byte[]) {
+        size += ((byte[]) value).length;
+      } else if (value instanceof char[]) {
+        size += 2 * ((char[]) value).length;
+      } else {
+        size += 8;
+      }
+    }
+    return size;
+  }
+
+  private static class Pending {
+    int rows;
+    long bytes;
+    long since;
+  }
+
+  /**
+   * The parameters set on a statement that only records them. They are set again, after the
+   * parameters of the previous rows, on the multi-row insert.
+   */
+  private static class RecordedRow implements InvocationHandler {
+
+    final int parameterCount;
+    private final List<Method> setters = new ArrayList<Method>();
+    private final List<Object[]> arguments = new ArrayList<Object[]>();
+
+    RecordedRow(int parameterCount) {
+      this.parameterCount = parameterCount;
+    }
+
+    PreparedStatement newRecorder() {
+      ClassLoader cl = PreparedStatement.class.getClassLoader();
+      return (PreparedStatement) Proxy.newProxyInstance(cl, new Class<?>[] { PreparedStatement.class }, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      if (PreparedStatement.class.equals(method.getDeclaringClass()) && method.getName().startsWith("set")) {
+        setters.add(method);
+        arguments.add(params);
+      } else if ("clearParameters".equals(method.getName())) {
+        setters.clear();
+        arguments.clear();
+      } else if (!"addBatch".equals(method.getName())) {
+        throw new SQLException("Method " + method.getName() + " is not supported while the parameters of a multi-row insert are recorded.");
+      }
+      return null;
+    }
+
+    void replay(PreparedStatement ps, int offset) throws SQLException {
+      for (int i = 0, n = setters.size(); i < n; i++) {
+        Object[] params = arguments.get(i).clone();
+        params[0] = (Integer) params[0] + offset;
+        try {
+          setters.get(i).invoke(ps, params);
+        } catch (Exception e) {
+          Throwable cause = ExceptionUtil.unwrapThrowable(e);
+          if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+          }
+          throw new ExecutorException("Could not set a parameter of a multi-row insert. Cause: " + cause, cause);
+        }
+      }
+    }
+  }
+
+  private int findStatement(MappedStatement ms, String sql) throws SQLException {
+    if (!configuration.isBatchStatementGrouping()) {
+      return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+    }
+    if (currentCommandType != null && currentCommandType != ms.getSqlCommandType()) {
+      executeStatements(false);
+    }
+    currentCommandType = ms.getSqlCommandType();
+    Integer index = statementIndexes.get(statementKey(ms, sql));
+    return index == null ? -1 : index;
+  }
+
+  private CacheKey statementKey(MappedStatement ms, String sql) {
+    CacheKey key = new CacheKey();
+    key.update(ms.getId());
+    key.update(sql);
+    return key;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -94,46 +394,25 @@ public class BatchExecutor extends BaseExecutor {
     }
   }
 
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    flushStatements();
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Connection connection = getConnection(ms.getStatementLog());
+    Statement stmt = handler.prepare(connection);
+    handler.parameterize(stmt);
+    return handler.<E>queryCursor(stmt);
+  }
+
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<BatchResult>();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
-          }
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
-        }
-        results.add(batchResult);
-      }
-      return results;
+      executeStatements(false);
+      return new ArrayList<BatchResult>(executedResults);
     } finally {
       for (Statement stmt : statementList) {
         closeStatement(stmt);
@@ -141,7 +420,95 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      statementIndexes.clear();
+      executedResults.clear();
+      pendingList.clear();
+      multiRowList.clear();
+      currentCommandType = null;
+      sequence = 0;
+      executedBatches = 0;
+      pendingRows = 0;
+      pendingBytes = 0;
+    }
+  }
+
+  /**
+   * Runs the pending statements in the order they were prepared and keeps their results for
+   * the next flush.
+   *
+   * @param keepOpen keep the statements for the next rows instead of closing them
+   */
+  private void executeStatements(boolean keepOpen) throws SQLException {
+    for (int i = 0, n = statementList.size(); i < n; i++) {
+      Statement stmt = statementList.get(i);
+      BatchResult batchResult = batchResultList.get(i);
+      if (batchResult.getParameterObjects().isEmpty()) {
+        // nothing added since the last automatic flush
+        continue;
+      }
+      List<RecordedRow> rows = multiRowList.get(i);
+      try {
+        if (rows != null) {
+          batchResult.setUpdateCounts(executeMultiRowInsert(batchResult, rows));
+          executedBatches++;
+          if (!keepOpen || !flushPolicy.isDiscardFlushedResults()) {
+            executedResults.add(batchResult);
+          }
+          continue;
+        }
+        batchResult.setUpdateCounts(stmt.executeBatch());
+        MappedStatement ms = batchResult.getMappedStatement();
+        List<Object> parameterObjects = batchResult.getParameterObjects();
+        KeyGenerator keyGenerator = ms.getKeyGenerator();
+        if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+          Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+          jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+        } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+          for (Object parameter : parameterObjects) {
+            keyGenerator.processAfter(this, ms, stmt, parameter);
+          }
+        }
+      } catch (BatchUpdateException e) {
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+            .append(" (batch index #")
+            .append(executedBatches + 1)
+            .append(")")
+            .append(" failed.");
+        if (executedBatches > 0) {
+          message.append(" ")
+              .append(executedBatches)
+              .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        throw new BatchExecutorException(message.toString(), e, new ArrayList<BatchResult>(executedResults), batchResult);
+      }
+      executedBatches++;
+      if (!keepOpen || !flushPolicy.isDiscardFlushedResults()) {
+        executedResults.add(batchResult);
+      }
+    }
+    pendingRows = 0;
+    pendingBytes = 0;
+    if (keepOpen) {
+      for (int i = 0, n = batchResultList.size(); i < n; i++) {
+        BatchResult batchResult = batchResultList.get(i);
+        batchResultList.set(i, new BatchResult(batchResult.getMappedStatement(), batchResult.getSql()));
+        pendingList.set(i, new Pending());
+        if (multiRowList.get(i) != null) {
+          multiRowList.set(i, new ArrayList<RecordedRow>());
+        }
+      }
+      return;
+    }
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
     }
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
+    statementIndexes.clear();
+    pendingList.clear();
+    multiRowList.clear();
   }
 
 }
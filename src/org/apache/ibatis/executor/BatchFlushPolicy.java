@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * When a {@link BatchExecutor} sends the pending batches on its own, without waiting for
+ * flushStatements(). A threshold of 0 is not checked.
+ * <p>
+ * The session policy (see {@link org.apache.ibatis.session.Configuration#getBatchFlushPolicy()})
+ * counts all the pending rows, a statement policy only the rows of that statement. Either one
+ * reaching a threshold runs every pending statement, in order. The interval is checked when rows
+ * are added, there is no background flush. Whether flushed results are kept is decided by the
+ * session policy only.
+ */
+public class BatchFlushPolicy {
+
+  public static final BatchFlushPolicy NONE = new BatchFlushPolicy(0, 0, 0, false);
+
+  private final int rows;
+  private final long bytes;
+  private final long intervalMillis;
+  private final boolean discardFlushedResults;
+
+  /**
+   * @param rows flush once this many rows are pending
+   * @param bytes flush once the estimated size of the pending parameters reaches this many bytes
+   * @param intervalMillis flush once the oldest pending row is this old
+   * @param discardFlushedResults when true the results of automatic flushes, and the parameter objects
+   *        they hold, are dropped, so flushStatements() only returns the last chunk
+   */
+  public BatchFlushPolicy(int rows, long bytes, long intervalMillis, boolean discardFlushedResults) {
+    this.rows = rows;
+    this.bytes = bytes;
+    this.intervalMillis = intervalMillis;
+    this.discardFlushedResults = discardFlushedResults;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getIntervalMillis() {
+    return intervalMillis;
+  }
+
+  public boolean isDiscardFlushedResults() {
+    return discardFlushedResults;
+  }
+
+  public boolean isEnabled() {
+    return rows > 0 || bytes > 0 || intervalMillis > 0;
+  }
+
+  boolean isReached(int pendingRows, long pendingBytes, long pendingSinceNanos, long now) {
+    return rows > 0 && pendingRows >= rows
+        || bytes > 0 && pendingBytes >= bytes
+        || intervalMillis > 0 && pendingRows > 0 && now - pendingSinceNanos >= intervalMillis * 1000000L;
+  }
+
+}
@@ -28,6 +28,7 @@ public class BatchResult {
   private final MappedStatement mappedStatement;
   private final String sql;
   private final List<Object> parameterObjects;
+  private final List<Integer> sequenceNumbers;
 
   private int[] updateCounts;
 
@@ -36,6 +37,7 @@ public class BatchResult {
     this.mappedStatement = mappedStatement;
     this.sql = sql;
     this.parameterObjects = new ArrayList<Object>();
+    this.sequenceNumbers = new ArrayList<Integer>();
   }
 
   public BatchResult(MappedStatement mappedStatement, String sql, Object parameterObject) {
@@ -69,7 +71,23 @@ public class BatchResult {
   }
 
   public void addParameterObject(Object parameterObject) {
+    addParameterObject(parameterObject, -1);
+  }
+
+  /**
+   * @param sequenceNumber the position of the update among all the updates sent since the last flush
+   */
+  public void addParameterObject(Object parameterObject, int sequenceNumber) {
     this.parameterObjects.add(parameterObject);
+    this.sequenceNumbers.add(sequenceNumber);
+  }
+
+  /**
+   * The position of each parameter object among all the updates sent since the last flush (-1 if
+   * unknown). Lets callers put the results of grouped statements back in the order they were sent.
+   */
+  public List<Integer> getSequenceNumbers() {
+    return sequenceNumbers;
   }
 
 }
@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheRefresher;
+import org.apache.ibatis.cache.ExpiringValue;
+import org.apache.ibatis.cache.TableTaggedValue;
+import org.apache.ibatis.cache.TableVersions;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Runs the query a second level cache entry came from again, on its own transaction and without going through the
+ * second level cache, to refresh the entry before it expires.
+ */
+class CachedQueryRefresher implements CacheRefresher {
+
+  private final MappedStatement ms;
+  private final Object parameterObject;
+  private final RowBounds rowBounds;
+  private final CacheKey key;
+  private final BoundSql boundSql;
+  private final TableVersions tableVersions;
+  private final String[] tables;
+
+  CachedQueryRefresher(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql,
+      TableVersions tableVersions, String[] tables) {
+    this.ms = ms;
+    this.parameterObject = parameterObject;
+    this.rowBounds = rowBounds;
+    this.key = key;
+    this.boundSql = boundSql;
+    this.tableVersions = tableVersions;
+    this.tables = tables;
+  }
+
+  @Override
+  public Object refresh() throws Exception {
+    long[] versions = tableVersions == null ? null : tableVersions.snapshot(tables);
+    Executor executor = newExecutor();
+    try {
+      if (!key.equals(executor.createCacheKey(ms, parameterObject, rowBounds, boundSql))) {
+        // the parameter was changed after the query, it cannot be run again
+        return null;
+      }
+      List<Object> list = executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+      return cachedValue(list, versions);
+    } finally {
+      executor.close(false);
+    }
+  }
+
+  /*
+   * Wraps a result the way it is put in the second level cache
+   */
+  Object cachedValue(Object list, long[] versions) {
+    Object value = tableVersions == null ? list : new TableTaggedValue(list, tables, versions);
+    return new ExpiringValue(value, ms.getCacheTimeToLive(), ms.isCacheRefreshAhead() ? this : null);
+  }
+
+  private Executor newExecutor() {
+    Configuration configuration = ms.getConfiguration();
+    Environment environment = configuration.getEnvironment();
+    DataSource ds = environment == null ? null : environment.getDataSource();
+    if (ds == null) {
+      throw new ExecutorException("Could not refresh the cached results of " + ms.getId() + ".  DataSource was not configured.");
+    }
+    Transaction tx = environment.getTransactionFactory().newTransaction(ds, null, false);
+    Executor executor = new SimpleExecutor(configuration, tx);
+    for (Interceptor interceptor : configuration.getInterceptors()) {
+      executor = (Executor) interceptor.plugin(executor);
+    }
+    return executor;
+  }
+
+}
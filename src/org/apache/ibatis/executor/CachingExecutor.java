@@ -16,15 +16,20 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TableTaggedValue;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.ResultHandler;
@@ -37,11 +42,21 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class CachingExecutor implements Executor {
 
+  private static final String[] ANY_TABLE = { TableVersions.ANY_TABLE };
+
   private Executor delegate;
-  private TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private TransactionalCacheManager tcm;
+  // null unless cached results are invalidated by table
+  private TableVersions tableVersions;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  public CachingExecutor(Executor delegate, TableVersions tableVersions) {
     this.delegate = delegate;
+    this.tableVersions = tableVersions;
+    this.tcm = new TransactionalCacheManager(tableVersions);
     delegate.setExecutorWrapper(this);
   }
 
@@ -71,30 +86,65 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    flushCacheIfRequired(ms, parameterObject, null);
     return delegate.update(ms, parameterObject);
   }
 
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
     BoundSql boundSql = ms.getBoundSql(parameterObject);
+    if (boundSql.getChunks() != null) {
+      return queryChunks(ms, parameterObject, rowBounds, resultHandler, boundSql.getChunks());
+    }
     CacheKey key = createCacheKey(ms, parameterObject, rowBounds, boundSql);
     return query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  private <E> List<E> queryChunks(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, List<BoundSql> chunks) throws SQLException {
+    BaseExecutor.checkChunkedRowBounds(ms, rowBounds);
+    List<E> list = new ArrayList<E>();
+    for (BoundSql chunk : chunks) {
+      CacheKey key = createCacheKey(ms, parameterObject, rowBounds, chunk);
+      List<E> chunkList = query(ms, parameterObject, rowBounds, resultHandler, key, chunk);
+      if (chunkList != null) {
+        list.addAll(chunkList);
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    flushCacheIfRequired(ms, parameter, null);
+    return delegate.queryCursor(ms, parameter, rowBounds);
+  }
+
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
       throws SQLException {
+    if (boundSql.getChunks() != null) {
+      return queryChunks(ms, parameterObject, rowBounds, resultHandler, boundSql.getChunks());
+    }
     Cache cache = ms.getCache();
     if (cache != null) {
-      flushCacheIfRequired(ms);
+      flushCacheIfRequired(ms, parameterObject, boundSql);
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, parameterObject, boundSql);
+        String[] tables = null;
+        long[] versions = null;
+        if (tableVersions != null) {
+          tables = ms.getTables(boundSql);
+          if (tables == null) {
+            tables = ANY_TABLE;
+          }
+          // taken before reading, so a write committed meanwhile leaves the result stale
+          versions = tableVersions.snapshot(tables);
+        }
         @SuppressWarnings("unchecked")
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) {
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          tcm.putObject(cache, key, cachedValue(ms, parameterObject, rowBounds, key, boundSql, list, tables, versions)); // issue #578 and #116
         }
         return list;
       }
@@ -102,6 +152,17 @@ public class CachingExecutor implements Executor {
     return delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  /*
+   * Tags the result with its tables, and with its time to live and refresher when the statement has them
+   */
+  private Object cachedValue(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql,
+      Object list, String[] tables, long[] versions) {
+    if (ms.getCacheTimeToLive() > 0 || ms.isCacheRefreshAhead()) {
+      return new CachedQueryRefresher(ms, parameterObject, rowBounds, key, boundSql, tableVersions, tables).cachedValue(list, versions);
+    }
+    return tableVersions == null ? list : new TableTaggedValue(list, tables, versions);
+  }
+
   @Override
   public List<BatchResult> flushStatements() throws SQLException {
     return delegate.flushStatements();
@@ -154,9 +215,19 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
-  private void flushCacheIfRequired(MappedStatement ms) {
+  private void flushCacheIfRequired(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
     Cache cache = ms.getCache();
-    if (cache != null && ms.isFlushCacheRequired()) {      
+    if (tableVersions != null && ms.isFlushCacheRequired() && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      // writes reach the results of every namespace, including those of statements without a cache
+      String[] tables = ms.getTables();
+      if (tables == null) {
+        tables = ms.getTables(boundSql != null ? boundSql : ms.getBoundSql(parameterObject));
+      }
+      tcm.invalidate(tables != null ? tables : ANY_TABLE);
+      if (tables == null && cache != null) {
+        tcm.clear(cache);
+      }
+    } else if (cache != null && ms.isFlushCacheRequired()) {      
       tcm.clear(cache);
     }
   }
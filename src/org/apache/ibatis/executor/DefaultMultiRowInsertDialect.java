@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.Locale;
+
+/**
+ * Rewrites <code>INSERT INTO t (a, b) VALUES (?, ?)</code> into
+ * <code>INSERT INTO t (a, b) VALUES (?, ?), (?, ?), ...</code>, the form accepted by MySQL, PostgreSQL, H2,
+ * HSQLDB, DB2 and SQL Server. Statements with anything after the VALUES row (ON DUPLICATE KEY, RETURNING...)
+ * or with parameters outside of it are left alone.
+ */
+public class DefaultMultiRowInsertDialect implements MultiRowInsertDialect {
+
+  // SQL Server accepts 2100 parameters, most other databases a lot more
+  public static final int DEFAULT_MAX_PARAMETERS = 2000;
+
+  private final int maxParameters;
+
+  public DefaultMultiRowInsertDialect() {
+    this(DEFAULT_MAX_PARAMETERS);
+  }
+
+  public DefaultMultiRowInsertDialect(int maxParameters) {
+    this.maxParameters = maxParameters;
+  }
+
+  @Override
+  public int getMaxParameters() {
+    return maxParameters;
+  }
+
+  @Override
+  public String rewrite(String sql, int rows) {
+    String trimmed = sql.trim();
+    if (!trimmed.regionMatches(true, 0, "insert", 0, 6)) {
+      return null;
+    }
+    int values = findValues(trimmed);
+    if (values < 0) {
+      return null;
+    }
+    int start = values + 6;
+    while (start < trimmed.length() && Character.isWhitespace(trimmed.charAt(start))) {
+      start++;
+    }
+    if (start == trimmed.length() || trimmed.charAt(start) != '(') {
+      return null;
+    }
+    int end = findClosingParenthesis(trimmed, start);
+    if (end != trimmed.length() - 1) {
+      return null;
+    }
+    String row = trimmed.substring(start);
+    StringBuilder builder = new StringBuilder(start + rows * (row.length() + 2));
+    builder.append(trimmed, 0, start).append(row);
+    for (int i = 1; i < rows; i++) {
+      builder.append(", ").append(row);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Finds the VALUES keyword outside of quotes and parentheses, as long as no parameter comes before it.
+   */
+  private int findValues(String sql) {
+    String lower = sql.toLowerCase(Locale.ENGLISH);
+    char quote = 0;
+    int depth = 0;
+    for (int i = 0, n = sql.length(); i < n; i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == '?') {
+        return -1;
+      } else if (depth == 0 && lower.startsWith("values", i)
+          && (i == 0 || !Character.isJavaIdentifierPart(sql.charAt(i - 1)))
+          && (i + 6 == n || !Character.isJavaIdentifierPart(sql.charAt(i + 6)))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int findClosingParenthesis(String sql, int open) {
+    char quote = 0;
+    int depth = 0;
+    for (int i = open, n = sql.length(); i < n; i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,190 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The session-local cache of an executor.
+ * <p>
+ * Results are kept by a delegate built from the localCache settings: a PerpetualCache when unbounded,
+ * a TinyLfuCache when localCacheSize or localCacheMaximumWeight is set, or any localCacheImpl with a
+ * String id constructor. Bounds are applied through its size, weigher and maximumWeight properties,
+ * and a cache with no size property is wrapped in an LruCache.
+ * <p>
+ * Entries put while a query runs, including the execution placeholder, are pinned outside the delegate
+ * until the outermost query {@link #release()}s them, as deferred loads and circular references must
+ * still find them. Entries of statements that opted out are dropped at that point.
+ */
+public class LocalCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Object> pinned = new HashMap<Object, Object>();
+  private final Map<Object, Object> retained = new HashMap<Object, Object>();
+
+  private long hits;
+  private long misses;
+
+  public LocalCache(String id, Configuration configuration) {
+    this.delegate = newDelegate(id, configuration);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize() + pinned.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    putObject(key, value, true);
+  }
+
+  /**
+   * @param retain - whether the entry goes to the delegate when released or is dropped
+   */
+  public void putObject(Object key, Object value, boolean retain) {
+    pinned.put(key, value);
+    if (retain) {
+      retained.put(key, value);
+    } else {
+      retained.remove(key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = pinned.get(key);
+    return value != null ? value : delegate.getObject(key);
+  }
+
+  /**
+   * Looks a query result up, counting a hit or a miss.
+   */
+  public Object lookup(Object key) {
+    Object value = getObject(key);
+    if (value != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    retained.remove(key);
+    Object value = pinned.remove(key);
+    Object released = delegate.removeObject(key);
+    return value != null ? value : released;
+  }
+
+  /**
+   * Hands the pinned entries over to the delegate, which may evict them from now on.
+   */
+  public void release() {
+    if (!pinned.isEmpty()) {
+      for (Map.Entry<Object, Object> entry : retained.entrySet()) {
+        delegate.putObject(entry.getKey(), entry.getValue());
+      }
+      pinned.clear();
+      retained.clear();
+    }
+  }
+
+  @Override
+  public void clear() {
+    pinned.clear();
+    retained.clear();
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public String toString() {
+    return getId() + " [hits=" + hits + ", misses=" + misses + ", size=" + getSize() + "]";
+  }
+
+  private static Cache newDelegate(String id, Configuration configuration) {
+    if (configuration == null) {
+      // executors that never query, like the one of a deserialized lazy loader
+      return new PerpetualCache(id);
+    }
+    int size = configuration.getLocalCacheSize();
+    long maximumWeight = configuration.getLocalCacheMaximumWeight();
+    boolean bounded = size > 0 || maximumWeight > 0;
+    Class<? extends Cache> implementation = configuration.getLocalCacheImpl();
+    if (implementation == null) {
+      implementation = bounded ? TinyLfuCache.class : PerpetualCache.class;
+    }
+    Cache cache;
+    try {
+      cache = implementation.getConstructor(String.class).newInstance(id);
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate local cache implementation (" + implementation + "). Cause: " + e, e);
+    }
+    if (!bounded) {
+      return cache;
+    }
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (maximumWeight > 0) {
+      if (!metaCache.hasSetter("weigher") || !metaCache.hasSetter("maximumWeight") || configuration.getLocalCacheWeigher() == null) {
+        throw new CacheException("A localCacheMaximumWeight needs a localCacheWeigher and a local cache implementation with "
+            + "weigher and maximumWeight properties, " + implementation.getName() + " was configured.");
+      }
+      metaCache.setValue("weigher", configuration.getLocalCacheWeigher().getName());
+      metaCache.setValue("maximumWeight", maximumWeight);
+    }
+    if (size > 0) {
+      if (metaCache.hasSetter("size")) {
+        metaCache.setValue("size", size);
+      } else {
+        LruCache lruCache = new LruCache(cache);
+        lruCache.setSize(size);
+        cache = lruCache;
+      }
+    }
+    return cache;
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Turns a single row INSERT into one that inserts several rows with a single statement, so a
+ * {@link BatchExecutor} can send a batch of inserts in a few round trips even when the driver
+ * does not rewrite batches itself.
+ */
+public interface MultiRowInsertDialect {
+
+  /**
+   * @return the most bind parameters a single statement may have
+   */
+  int getMaxParameters();
+
+  /**
+   * @param sql a prepared single row insert
+   * @param rows the number of rows the new statement should insert
+   * @return the insert with its VALUES row repeated, or null if this statement cannot be rewritten
+   */
+  String rewrite(String sql, int rows);
+
+}
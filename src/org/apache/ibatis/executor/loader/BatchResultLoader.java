@@ -0,0 +1,287 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Loads a nested select for a window of up to batchSize parent rows with a single query.
+ * <p>
+ * The nested statement gets the distinct keys of the window as a list, under "list" and "collection"
+ * like a List parameter of a mapper method, and is expected to select the rows of all of them,
+ * typically with a foreach IN list. Each key is the value the statement would have been called with
+ * for one row: the column value, or a map/bean for a composite column. The children are given back to
+ * their parent by comparing the key with the properties mapped to the foreignColumn columns of the child.
+ * <p>
+ * Eager rows are filled in by {@link #load()}. Lazy rows get a loader from {@link #addLazy(Object, Class)}
+ * and the first one used loads the whole window.
+ */
+public class BatchResultLoader {
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final MappedStatement mappedStatement;
+  private final int batchSize;
+  private final String[] keyProperties;
+  private final String[] foreignColumns;
+  private final ResultExtractor resultExtractor;
+
+  private final Map<List<Object>, Object> keys = new LinkedHashMap<List<Object>, Object>();
+  private final List<EagerRow> eagerRows = new ArrayList<EagerRow>();
+  private int rowCount;
+  private Map<List<Object>, List<Object>> results;
+
+  public BatchResultLoader(Configuration configuration, Executor executor, MappedStatement mappedStatement, ResultMapping resultMapping) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.mappedStatement = mappedStatement;
+    this.batchSize = resultMapping.getBatchSize();
+    List<ResultMapping> composites = resultMapping.getComposites();
+    if (composites.isEmpty()) {
+      this.keyProperties = null;
+    } else {
+      this.keyProperties = new String[composites.size()];
+      for (int i = 0; i < keyProperties.length; i++) {
+        keyProperties[i] = composites.get(i).getProperty();
+      }
+    }
+    this.foreignColumns = resultMapping.getForeignColumn().split(",");
+    for (int i = 0; i < foreignColumns.length; i++) {
+      foreignColumns[i] = foreignColumns[i].trim();
+    }
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+  }
+
+  /**
+   * @return true when no more rows should be added, because the window is full or was already loaded
+   */
+  public boolean isClosed() {
+    return rowCount >= batchSize || results != null;
+  }
+
+  public boolean hasEagerRows() {
+    return !eagerRows.isEmpty();
+  }
+
+  public void addEager(MetaObject metaResultObject, String property, Object key, Class<?> targetType) {
+    eagerRows.add(new EagerRow(metaResultObject, property, addKey(key), targetType));
+  }
+
+  public ResultLoader addLazy(Object key, Class<?> targetType) {
+    return new LazyRow(addKey(key), key, targetType);
+  }
+
+  /**
+   * Runs the nested select for all the keys of the window and sets the property of the eager rows.
+   */
+  public void load() throws SQLException {
+    load(null);
+  }
+
+  /*
+   * Runs the nested select with the given executor, or with the one a ResultLoader picks when null
+   */
+  private void load(Executor localExecutor) throws SQLException {
+    if (results == null) {
+      Map<String, Object> parameterObject = newParameterObject(new ArrayList<Object>(keys.values()));
+      // a lazy window may load after the session is closed, the key is made by the executor that runs it
+      ResultLoader resultLoader = new ResultLoader(configuration, executor, mappedStatement, parameterObject, List.class, null, null);
+      @SuppressWarnings("unchecked")
+      List<Object> children = (List<Object>) (localExecutor == null ? resultLoader.loadResult() : resultLoader.loadResult(localExecutor));
+      results = groupByForeignKey(children);
+    }
+    for (EagerRow row : eagerRows) {
+      Object value = getValue(row.key, row.targetType);
+      if (value != null || configuration.isCallSettersOnNulls() && !row.metaResultObject.getSetterType(row.property).isPrimitive()) {
+        row.metaResultObject.setValue(row.property, value);
+      }
+    }
+    eagerRows.clear();
+  }
+
+  private List<Object> addKey(Object key) {
+    List<Object> keyValues = new ArrayList<Object>();
+    if (keyProperties == null) {
+      keyValues.add(normalize(key));
+    } else {
+      MetaObject metaKey = configuration.newMetaObject(key);
+      for (String keyProperty : keyProperties) {
+        keyValues.add(normalize(metaKey.getValue(keyProperty)));
+      }
+    }
+    if (!keys.containsKey(keyValues)) {
+      keys.put(keyValues, key);
+    }
+    rowCount++;
+    return keyValues;
+  }
+
+  private Object getValue(List<Object> key, Class<?> targetType) {
+    List<Object> children = results.get(key);
+    return resultExtractor.extractObjectFromList(children == null ? new ArrayList<Object>() : children, targetType);
+  }
+
+  private Map<List<Object>, List<Object>> groupByForeignKey(List<Object> children) {
+    Map<List<Object>, List<Object>> grouped = new HashMap<List<Object>, List<Object>>();
+    String[] foreignProperties = null;
+    for (Object child : children) {
+      if (child == null) {
+        continue;
+      }
+      MetaObject metaChild = configuration.newMetaObject(child);
+      List<Object> key = new ArrayList<Object>(foreignColumns.length);
+      if (child instanceof Map) {
+        for (String foreignColumn : foreignColumns) {
+          key.add(normalize(getIgnoreCase((Map<?, ?>) child, foreignColumn)));
+        }
+      } else {
+        if (foreignProperties == null) {
+          foreignProperties = findForeignProperties(child.getClass());
+        }
+        for (String foreignProperty : foreignProperties) {
+          key.add(normalize(metaChild.getValue(foreignProperty)));
+        }
+      }
+      List<Object> group = grouped.get(key);
+      if (group == null) {
+        group = new ArrayList<Object>();
+        grouped.put(key, group);
+      }
+      group.add(child);
+    }
+    return grouped;
+  }
+
+  private String[] findForeignProperties(Class<?> childType) {
+    String[] foreignProperties = new String[foreignColumns.length];
+    List<ResultMapping> resultMappings = Collections.emptyList();
+    if (!mappedStatement.getResultMaps().isEmpty()) {
+      ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+      resultMappings = resultMap.getPropertyResultMappings();
+    }
+    MetaClass metaClass = MetaClass.forClass(childType, configuration.getReflectorFactory());
+    for (int i = 0; i < foreignColumns.length; i++) {
+      for (ResultMapping resultMapping : resultMappings) {
+        if (foreignColumns[i].equalsIgnoreCase(resultMapping.getColumn())) {
+          foreignProperties[i] = resultMapping.getProperty();
+          break;
+        }
+      }
+      if (foreignProperties[i] == null) {
+        foreignProperties[i] = metaClass.findProperty(foreignColumns[i], configuration.isMapUnderscoreToCamelCase());
+      }
+      if (foreignProperties[i] == null) {
+        throw new ExecutorException("No property of " + childType.getName() + " is mapped to the foreignColumn '"
+            + foreignColumns[i] + "' in the results of '" + mappedStatement.getId() + "'.");
+      }
+    }
+    return foreignProperties;
+  }
+
+  private static Object getIgnoreCase(Map<?, ?> map, String column) {
+    Object value = map.get(column);
+    if (value == null) {
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        if (column.equalsIgnoreCase(String.valueOf(entry.getKey()))) {
+          return entry.getValue();
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * The parent column and the child property do not always have the same type, e.g. Integer and Long.
+   */
+  private static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+      try {
+        return new BigDecimal(value.toString()).longValueExact();
+      } catch (ArithmeticException e) {
+        return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+      }
+    }
+    return value;
+  }
+
+  private static Map<String, Object> newParameterObject(List<Object> keys) {
+    Map<String, Object> parameterObject = new HashMap<String, Object>();
+    parameterObject.put("list", keys);
+    parameterObject.put("collection", keys);
+    return parameterObject;
+  }
+
+  private static class EagerRow {
+    private final MetaObject metaResultObject;
+    private final String property;
+    private final List<Object> key;
+    private final Class<?> targetType;
+
+    EagerRow(MetaObject metaResultObject, String property, List<Object> key, Class<?> targetType) {
+      this.metaResultObject = metaResultObject;
+      this.property = property;
+      this.key = key;
+      this.targetType = targetType;
+    }
+  }
+
+  /**
+   * The loader of one lazy row. Its parameter is its own key alone, which is what a deserialized
+   * object runs the nested select with.
+   */
+  private class LazyRow extends ResultLoader {
+    private final List<Object> key;
+
+    LazyRow(List<Object> key, Object rawKey, Class<?> targetType) {
+      super(BatchResultLoader.this.configuration, BatchResultLoader.this.executor, BatchResultLoader.this.mappedStatement,
+          newParameterObject(new ArrayList<Object>(Collections.singletonList(rawKey))), targetType, null, null);
+      this.key = key;
+    }
+
+    @Override
+    public Object loadResult() throws SQLException {
+      return loadResult(null);
+    }
+
+    @Override
+    Object loadResult(Executor localExecutor) throws SQLException {
+      load(localExecutor);
+      resultObject = getValue(key, targetType);
+      return resultObject;
+    }
+  }
+
+}
@@ -67,18 +67,12 @@ public class ResultLoader {
   }
 
   public Object loadResult() throws SQLException {
-    List<Object> list = selectList();
-    resultObject = resultExtractor.extractObjectFromList(list, targetType);
-    return resultObject;
-  }
-
-  private <E> List<E> selectList() throws SQLException {
     Executor localExecutor = executor;
-    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+    if (!isExecutorUsable()) {
       localExecutor = newExecutor();
     }
     try {
-      return localExecutor.<E> query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+      return loadResult(localExecutor);
     } finally {
       if (localExecutor != executor) {
         localExecutor.close(false);
@@ -86,7 +80,33 @@ public class ResultLoader {
     }
   }
 
-  private Executor newExecutor() {
+  /*
+   * Loads with an executor the caller opened and closes, so several loaders can share one
+   */
+  Object loadResult(Executor localExecutor) throws SQLException {
+    List<Object> list = selectList(localExecutor);
+    resultObject = resultExtractor.extractObjectFromList(list, targetType);
+    return resultObject;
+  }
+
+  /*
+   * The executor of the session can only be used on its thread, while the session is open
+   */
+  boolean isExecutorUsable() {
+    return Thread.currentThread().getId() == this.creatorThreadId && !executor.isClosed();
+  }
+
+  private <E> List<E> selectList(Executor localExecutor) throws SQLException {
+    if (boundSql == null) {
+      // the caller left the key to be computed by the executor that runs the query
+      BoundSql localBoundSql = mappedStatement.getBoundSql(parameterObject);
+      CacheKey localCacheKey = localExecutor.createCacheKey(mappedStatement, parameterObject, RowBounds.DEFAULT, localBoundSql);
+      return localExecutor.<E> query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, localCacheKey, localBoundSql);
+    }
+    return localExecutor.<E> query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+  }
+
+  Executor newExecutor() {
     final Environment environment = configuration.getEnvironment();
     if (environment == null) {
       throw new ExecutorException("ResultLoader could not load lazily.  Environment was not configured.");
@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.ibatis.executor.Executor;
+
+/**
+ * The lazy loaders of one property for all the objects built from the same result set.
+ * <p>
+ * When the property of one of them is used, the pending loaders of all of them run on a single
+ * executor, one query per loader or one per window when the property has a batchSize. The other
+ * objects keep their values here until their property is used, so an object is never changed from
+ * another thread than the one using it.
+ * <p>
+ * Only the objects refer to their loaders, the group holds them weakly: the loader of an object that
+ * is gone is not run, and the value it was given is dropped with it.
+ */
+public class ResultLoaderGroup {
+
+  private final List<WeakReference<ResultLoader>> pending = new ArrayList<WeakReference<ResultLoader>>();
+  // ResultLoader keeps the identity equals of Object
+  private final Map<ResultLoader, Object> loaded = new WeakHashMap<ResultLoader, Object>();
+
+  public synchronized void add(ResultLoader resultLoader) {
+    pending.add(new WeakReference<ResultLoader>(resultLoader));
+  }
+
+  public synchronized Object load(ResultLoader trigger) throws SQLException {
+    if (loaded.containsKey(trigger)) {
+      return loaded.remove(trigger);
+    }
+    Executor localExecutor = trigger.isExecutorUsable() ? trigger.executor : trigger.newExecutor();
+    try {
+      Object value = trigger.loadResult(localExecutor);
+      for (Iterator<WeakReference<ResultLoader>> it = pending.iterator(); it.hasNext();) {
+        ResultLoader resultLoader = it.next().get();
+        it.remove();
+        if (resultLoader != null && resultLoader != trigger) {
+          loaded.put(resultLoader, resultLoader.loadResult(localExecutor));
+        }
+      }
+      return value;
+    } finally {
+      if (localExecutor != trigger.executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+}
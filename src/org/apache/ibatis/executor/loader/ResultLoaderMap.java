@@ -28,6 +28,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BaseExecutor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ExecutorException;
@@ -58,6 +59,15 @@ public class ResultLoaderMap {
     loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader));
   }
 
+  /**
+   * Adds a loader that loads together with the other loaders of the group.
+   */
+  public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader, ResultLoaderGroup group) {
+    addLoader(property, metaResultObject, resultLoader);
+    loaderMap.get(getUppercaseFirstProperty(property)).group = group;
+    group.add(resultLoader);
+  }
+
   public final Map<String, LoadPair> getProperties() {
     return new HashMap<String, LoadPair>(this.loaderMap);
   }
@@ -118,6 +128,10 @@ public class ResultLoaderMap {
      * Result loader which loads unread properties.
      */
     private transient ResultLoader resultLoader;
+    /**
+     * Loaders of the same property of the sibling objects, if loaded together.
+     */
+    private transient ResultLoaderGroup group;
     /**
      * Wow, logger.
      */
@@ -211,7 +225,11 @@ public class ResultLoaderMap {
                 old.parameterObject, old.targetType, old.cacheKey, old.boundSql);
       }
 
-      this.metaResultObject.setValue(property, this.resultLoader.loadResult());
+      if (this.group != null && this.serializationCheck != null) {
+        this.metaResultObject.setValue(property, this.group.load(this.resultLoader));
+      } else {
+        this.metaResultObject.setValue(property, this.resultLoader.loadResult());
+      }
     }
 
     private Configuration getConfiguration() {
@@ -300,5 +318,10 @@ public class ResultLoaderMap {
     protected <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
       throw new UnsupportedOperationException("Not supported.");
     }
+
+    @Override
+    protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+      throw new UnsupportedOperationException("Not supported.");
+    }
   }
 }
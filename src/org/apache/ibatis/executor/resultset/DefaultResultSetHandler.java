@@ -23,16 +23,21 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.executor.loader.ResultLoaderGroup;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
@@ -86,6 +91,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<String, ResultMapping>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<CacheKey, List<PendingRelation>>();
 
+  // cursors keep the partially built parent between fetches
+  private Object previousRowValue;
+  private boolean streaming;
+
+  // windows of parent rows of the nested selects with a batchSize
+  private final Map<ResultMapping, BatchResultLoader> batchResultLoaders = new IdentityHashMap<ResultMapping, BatchResultLoader>();
+  // lazy loaders of each nested select, loaded together when lazyLoadSiblings is on
+  private final Map<ResultMapping, ResultLoaderGroup> resultLoaderGroups = new IdentityHashMap<ResultMapping, ResultLoaderGroup>();
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumAutoMapping>> autoMappingsCache = new HashMap<String, List<UnMappedColumAutoMapping>>();
   
@@ -96,11 +110,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static class UnMappedColumAutoMapping {    
     private final String column;   
+    private final int columnIndex;
     private final String property;    
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
-    public UnMappedColumAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
@@ -157,6 +173,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } finally {
       // issue #228 (close resultsets)
       closeResultSet(rs);
+      autoMappingsCache.clear();
     }
   }
 
@@ -198,9 +215,29 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    loadBatchResults();
     return collapseSingleResultList(multipleResults);
   }
 
+  @Override
+  public <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException {
+    ErrorContext.instance().activity("handling cursor results").object(mappedStatement.getId());
+
+    ResultSetWrapper rsw = getFirstResultSet(stmt);
+
+    List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+
+    int resultMapCount = resultMaps.size();
+    validateResultMapsCount(rsw, resultMapCount);
+    if (resultMapCount != 1) {
+      throw new ExecutorException("Cursor results cannot be mapped to multiple resultMaps");
+    }
+
+    ResultMap resultMap = resultMaps.get(0);
+    streaming = true;
+    return new DefaultCursor<E>(this, resultMap, rsw, rowBounds);
+  }
+
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
     ResultSet rs = stmt.getResultSet();
     while (rs == null) {
@@ -247,6 +284,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void cleanUpAfterHandlingResultSet() {
     nestedResultObjects.clear();
     ancestorColumnPrefix.clear();
+    resultLoaderGroups.clear();
+    // automatic mappings hold column indexes of the result set just handled
+    autoMappingsCache.clear();
   }
 
   private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -284,7 +324,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // HANDLE ROWS FOR SIMPLE RESULTMAP
   //
 
-  private void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+  public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     if (resultMap.hasNestedResultMaps()) {
       ensureNoRowBounds();
       checkResultHandler();
@@ -358,12 +398,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object resultObject = createResultObject(rsw, resultMap, lazyLoader, null);
     if (resultObject != null && !typeHandlerRegistry.hasTypeHandler(resultMap.getType())) {
-      final MetaObject metaObject = configuration.newMetaObject(resultObject);
       boolean foundValues = !resultMap.getConstructorResultMappings().isEmpty();
-      if (shouldApplyAutomaticMappings(resultMap, false)) {
-        foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, null) || foundValues;
+      final RowMapper rowMapper = rsw.getRowMapper(resultMap, shouldApplyAutomaticMappings(resultMap, false));
+      if (rowMapper != null) {
+        foundValues = rowMapper.map(rsw.getResultSet(), resultObject) || foundValues;
+      } else {
+        final MetaObject metaObject = configuration.newMetaObject(resultObject);
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, null) || foundValues;
+        }
+        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, null) || foundValues;
       }
-      foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, null) || foundValues;
       foundValues = lazyLoader.size() > 0 || foundValues;
       resultObject = foundValues ? resultObject : null;
       return resultObject;
@@ -389,19 +434,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+    final int[] columnIndexes = rsw.getMappedColumnIndexes(propertyMappings, columnPrefix);
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      int columnIndex = columnIndexes[i];
       if (propertyMapping.getNestedResultMapId() != null) {
         // the user added a column attribute to a nested result map, ignore it
-        column = null;
+        columnIndex = 0;
       }
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || columnIndex > 0
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndex);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         // issue #377, call setter on nulls
@@ -418,8 +464,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -427,6 +473,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return DEFERED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex > 0) {
+        return typeHandler.getResult(rs, columnIndex);
+      }
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       return typeHandler.getResult(rs, column);
     }
@@ -454,7 +503,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final Class<?> propertyType = metaObject.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType)) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumAutoMapping(columnName, rsw.getColumnIndex(columnName), property, typeHandler, propertyType.isPrimitive()));
           }
         }
       }
@@ -468,7 +517,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (autoMapping.size() > 0) {
       for (UnMappedColumAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex);
         // issue #377, call setter on nulls
         if (value != null || configuration.isCallSettersOnNulls()) {
           if (value != null || !mapping.primitive) {
@@ -574,7 +623,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   Object createParameterizedResultObject(ResultSetWrapper rsw, Class<?> resultType, List<ResultMapping> constructorMappings,
       List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix) {
     boolean foundValues = false;
-    for (ResultMapping constructorMapping : constructorMappings) {
+    final int[] columnIndexes = rsw.getMappedColumnIndexes(constructorMappings, columnPrefix);
+    for (int i = 0; i < constructorMappings.size(); i++) {
+      final ResultMapping constructorMapping = constructorMappings.get(i);
       final Class<?> parameterType = constructorMapping.getJavaType();
       final String column = constructorMapping.getColumn();
       final Object value;
@@ -586,7 +637,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           value = getRowValue(rsw, resultMap);
         } else {
           final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          if (columnIndexes[i] > 0) {
+            value = typeHandler.getResult(rsw.getResultSet(), columnIndexes[i]);
+          } else {
+            value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          }
         }
       } catch (ResultMapException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -670,7 +725,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && propertyMapping.getBatchSize() > 0) {
+      // the nested select expects a list of keys
+      addToBatch(metaResultObject, propertyMapping, nestedQuery, nestedQueryParameterObject, lazyLoader);
+      value = DEFERED;
+    } else if (nestedQueryParameterObject != null) {
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = propertyMapping.getJavaType();
@@ -680,7 +739,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       } else {
         final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         if (propertyMapping.isLazy()) {
-          lazyLoader.addLoader(property, metaResultObject, resultLoader);
+          addLazyLoader(lazyLoader, metaResultObject, propertyMapping, resultLoader);
           value = DEFERED;
         } else {
           value = resultLoader.loadResult();
@@ -690,6 +749,57 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  /*
+   * Eager rows are loaded when their window is full or when all the results were handled. Rows handed to a
+   * ResultHandler or a Cursor cannot wait, so when eager they are loaded at once, in a window of their own.
+   */
+  private void addToBatch(MetaObject metaResultObject, ResultMapping propertyMapping, MappedStatement nestedQuery, Object nestedQueryParameterObject,
+      ResultLoaderMap lazyLoader) throws SQLException {
+    if (!propertyMapping.isLazy() && (resultHandler != null || streaming)) {
+      BatchResultLoader single = new BatchResultLoader(configuration, executor, nestedQuery, propertyMapping);
+      single.addEager(metaResultObject, propertyMapping.getProperty(), nestedQueryParameterObject, propertyMapping.getJavaType());
+      single.load();
+      return;
+    }
+    BatchResultLoader batch = batchResultLoaders.get(propertyMapping);
+    if (batch == null || batch.isClosed()) {
+      batch = new BatchResultLoader(configuration, executor, nestedQuery, propertyMapping);
+      batchResultLoaders.put(propertyMapping, batch);
+    }
+    final String property = propertyMapping.getProperty();
+    final Class<?> targetType = propertyMapping.getJavaType();
+    if (propertyMapping.isLazy()) {
+      addLazyLoader(lazyLoader, metaResultObject, propertyMapping, batch.addLazy(nestedQueryParameterObject, targetType));
+    } else {
+      batch.addEager(metaResultObject, property, nestedQueryParameterObject, targetType);
+      if (batch.isClosed()) {
+        batch.load();
+      }
+    }
+  }
+
+  private void addLazyLoader(ResultLoaderMap lazyLoader, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoader resultLoader) {
+    if (configuration.isLazyLoadSiblings()) {
+      ResultLoaderGroup group = resultLoaderGroups.get(propertyMapping);
+      if (group == null) {
+        group = new ResultLoaderGroup();
+        resultLoaderGroups.put(propertyMapping, group);
+      }
+      lazyLoader.addLoader(propertyMapping.getProperty(), metaResultObject, resultLoader, group);
+    } else {
+      lazyLoader.addLoader(propertyMapping.getProperty(), metaResultObject, resultLoader);
+    }
+  }
+
+  private void loadBatchResults() throws SQLException {
+    for (BatchResultLoader batch : batchResultLoaders.values()) {
+      if (batch.hasEagerRows()) {
+        batch.load();
+      }
+    }
+    batchResultLoaders.clear();
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -777,13 +887,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     final DefaultResultContext<Object> resultContext = new DefaultResultContext<Object>();
     skipRows(rsw.getResultSet(), rowBounds);
-    Object rowValue = null;
+    // a cursor emits a parent once its row key changes, so rows are grouped as if resultOrdered
+    final boolean resultOrdered = mappedStatement.isResultOrdered() || streaming;
+    Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (resultOrdered) {
         if (partialObject == null && rowValue != null) {
           nestedResultObjects.clear();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
@@ -796,8 +908,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && resultOrdered && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+      previousRowValue = null;
+    } else if (streaming) {
+      previousRowValue = rowValue;
     }
   }
 
@@ -960,21 +1075,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
-    for (ResultMapping resultMapping : resultMappings) {
+    final int[] columnIndexes = rsw.getMappedColumnIndexes(resultMappings, columnPrefix);
+    for (int i = 0; i < resultMappings.size(); i++) {
+      final ResultMapping resultMapping = resultMappings.get(i);
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
         createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
             prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
       } else if (resultMapping.getNestedQueryId() == null) {
-        final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
         final TypeHandler<?> th = resultMapping.getTypeHandler();
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+        if (columnIndexes[i] > 0) {
+          final Object value = th.getResult(rsw.getResultSet(), columnIndexes[i]);
           if (value != null) {
-            cacheKey.update(column);
+            cacheKey.update(prependPrefix(resultMapping.getColumn(), columnPrefix));
             cacheKey.update(value);
           }
         }
@@ -996,7 +1111,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
+        String value = rsw.getResultSet().getString(rsw.getColumnIndex(column));
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1008,7 +1123,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+      final String value = rsw.getResultSet().getString(rsw.getColumnIndex(columnName));
       if (value != null) {
         cacheKey.update(columnName);
         cacheKey.update(value);
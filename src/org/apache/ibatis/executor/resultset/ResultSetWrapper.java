@@ -22,12 +22,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -38,21 +40,26 @@ import org.apache.ibatis.type.UnknownTypeHandler;
 /**
  * @author Iwao AVE!
  */
-class ResultSetWrapper {
+public class ResultSetWrapper {
 
   private final ResultSet resultSet;
   private final TypeHandlerRegistry typeHandlerRegistry;
   private final List<String> columnNames = new ArrayList<String>();
   private final List<String> classNames = new ArrayList<String>();
   private final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>();
+  private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+  private final Map<List<ResultMapping>, Map<String, int[]>> mappedColumnIndexesMap = new IdentityHashMap<List<ResultMapping>, Map<String, int[]>>();
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
   private Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  private final RowMapperCompiler rowMapperCompiler;
+  private final Map<String, RowMapper> rowMappers = new HashMap<String, RowMapper>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
+    this.rowMapperCompiler = configuration.isUseCompiledRowMappers() ? configuration.getRowMapperCompiler() : null;
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
@@ -60,6 +67,10 @@ class ResultSetWrapper {
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
     }
+    // like ResultSet.findColumn, a label resolves to the first matching column
+    for (int i = columnNames.size() - 1; i >= 0; i--) {
+      columnIndexes.put(columnNames.get(i).toUpperCase(Locale.ENGLISH), Integer.valueOf(i + 1));
+    }
   }
 
   public ResultSet getResultSet() {
@@ -74,6 +85,31 @@ class ResultSetWrapper {
     return Collections.unmodifiableList(classNames);
   }
 
+  public List<JdbcType> getJdbcTypes() {
+    return Collections.unmodifiableList(jdbcTypes);
+  }
+
+  /**
+   * Gets the compiled row mapper for the result map on this column layout.
+   *
+   * @param resultMap
+   * @param autoMapping whether unmapped columns are mapped automatically
+   * @return null if compiled row mappers are disabled or the result map is not supported
+   * @throws SQLException
+   */
+  public RowMapper getRowMapper(ResultMap resultMap, boolean autoMapping) throws SQLException {
+    if (rowMapperCompiler == null) {
+      return null;
+    }
+    final String mapKey = getMapKey(resultMap, null);
+    RowMapper rowMapper = rowMappers.get(mapKey);
+    if (rowMapper == null && !rowMappers.containsKey(mapKey)) {
+      rowMapper = rowMapperCompiler.getRowMapper(resultMap, this, autoMapping);
+      rowMappers.put(mapKey, rowMapper);
+    }
+    return rowMapper;
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -97,7 +133,7 @@ class ResultSetWrapper {
       // Replicate logic of UnknownTypeHandler#resolveTypeHandler
       // See issue #59 comment 10
       if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
+        final int index = getColumnIndex(columnName) - 1;
         final JdbcType jdbcType = jdbcTypes.get(index);
         final Class<?> javaType = resolveClass(classNames.get(index));
         if (javaType != null && jdbcType != null) {
@@ -116,6 +152,44 @@ class ResultSetWrapper {
     return handler;
   }
 
+  /**
+   * Resolves a column label the way the driver would, without asking the driver.
+   *
+   * @param columnName
+   * @return the 1-based column index, or 0 if the result set has no such column
+   */
+  public int getColumnIndex(String columnName) {
+    final Integer index = columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    return index == null ? 0 : index.intValue();
+  }
+
+  /**
+   * Resolves the column of each mapping once per result set, so rows can be read by index.
+   *
+   * @param resultMappings mappings of a single result map
+   * @param columnPrefix
+   * @return for each mapping, the 1-based column index, or 0 if the mapping has no column in this result set
+   */
+  public int[] getMappedColumnIndexes(List<ResultMapping> resultMappings, String columnPrefix) {
+    Map<String, int[]> indexesByPrefix = mappedColumnIndexesMap.get(resultMappings);
+    if (indexesByPrefix == null) {
+      indexesByPrefix = new HashMap<String, int[]>();
+      mappedColumnIndexesMap.put(resultMappings, indexesByPrefix);
+    }
+    int[] indexes = indexesByPrefix.get(columnPrefix);
+    if (indexes == null) {
+      indexes = new int[resultMappings.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        final String column = resultMappings.get(i).getColumn();
+        if (column != null) {
+          indexes[i] = getColumnIndex(columnPrefix == null ? column : columnPrefix + column);
+        }
+      }
+      indexesByPrefix.put(columnPrefix, indexes);
+    }
+    return indexes;
+  }
+
   private Class<?> resolveClass(String className) {
     try {
       return Resources.classForName(className);
@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Applies the simple property and automatic mappings of one result map to a result object,
+ * reading columns by index from a fixed result set layout.
+ *
+ * @see RowMapperCompiler
+ */
+public interface RowMapper {
+
+  /**
+   * @return true if any value was found for the row, with the same meaning as in
+   *         the reflective mapping path
+   */
+  boolean map(ResultSet rs, Object resultObject) throws SQLException;
+
+}
@@ -0,0 +1,299 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * Compiles a result map and a result set column layout into a {@link RowMapper} that reads
+ * columns by index and calls setters directly, instead of going through MetaObject and
+ * Method.invoke for every column of every row.
+ * <p>
+ * Only result maps made of simple column to property mappings are compiled. Nested queries,
+ * nested result maps, composite columns, multiple result sets, nested property paths, Map
+ * results, custom object wrappers and properties without a public setter are left to the
+ * reflective path, which is signalled by returning null.
+ */
+public class RowMapperCompiler {
+
+  private static final Log log = LogFactory.getLog(RowMapperCompiler.class);
+
+  private static final Object UNSUPPORTED = new Object();
+  private static final AtomicInteger classCounter = new AtomicInteger();
+
+  private final Configuration configuration;
+  private final ConcurrentMap<String, Object> rowMappers = new ConcurrentHashMap<String, Object>();
+
+  public RowMapperCompiler(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /*
+   * Returns the compiled mapper for this result map and column layout, compiling it on first use,
+   * or null when the result map must be handled reflectively.
+   */
+  public RowMapper getRowMapper(ResultMap resultMap, ResultSetWrapper rsw, boolean autoMapping) throws SQLException {
+    final String key = layoutKey(resultMap, rsw, autoMapping);
+    Object rowMapper = rowMappers.get(key);
+    if (rowMapper == null) {
+      rowMapper = compile(resultMap, rsw, autoMapping);
+      if (rowMapper == null) {
+        rowMapper = UNSUPPORTED;
+      }
+      Object previous = rowMappers.putIfAbsent(key, rowMapper);
+      if (previous != null) {
+        rowMapper = previous;
+      }
+    }
+    return rowMapper == UNSUPPORTED ? null : (RowMapper) rowMapper;
+  }
+
+  public void clear() {
+    rowMappers.clear();
+  }
+
+  private String layoutKey(ResultMap resultMap, ResultSetWrapper rsw, boolean autoMapping) {
+    StringBuilder key = new StringBuilder(resultMap.getId()).append(autoMapping ? ":auto" : ":noauto");
+    List<String> columnNames = rsw.getColumnNames();
+    List<String> classNames = rsw.getClassNames();
+    List<?> jdbcTypes = rsw.getJdbcTypes();
+    for (int i = 0; i < columnNames.size(); i++) {
+      key.append('|').append(columnNames.get(i)).append(',').append(jdbcTypes.get(i)).append(',').append(classNames.get(i));
+    }
+    return key.toString();
+  }
+
+  private RowMapper compile(ResultMap resultMap, ResultSetWrapper rsw, boolean autoMapping) throws SQLException {
+    final Class<?> type = resultMap.getType();
+    if (!isCompilable(resultMap)) {
+      return null;
+    }
+    final MetaClass metaClass = MetaClass.forClass(type, configuration.getReflectorFactory());
+    final List<ColumnMapping> mappings = new ArrayList<ColumnMapping>();
+    if (autoMapping && !addAutomaticMappings(resultMap, rsw, metaClass, mappings)) {
+      return null;
+    }
+    if (!addPropertyMappings(resultMap, rsw, metaClass, mappings)) {
+      return null;
+    }
+    try {
+      return generate(type, mappings);
+    } catch (Exception e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Could not compile a row mapper for result map '" + resultMap.getId() + "', using reflection.  Cause: " + e);
+      }
+      return null;
+    }
+  }
+
+  private boolean isCompilable(ResultMap resultMap) {
+    final Class<?> type = resultMap.getType();
+    return configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class
+        && !resultMap.hasNestedResultMaps()
+        && !resultMap.hasNestedQueries()
+        && !type.isArray()
+        && !Map.class.isAssignableFrom(type)
+        && !Collection.class.isAssignableFrom(type)
+        && !configuration.getTypeHandlerRegistry().hasTypeHandler(type)
+        && Modifier.isPublic(type.getModifiers());
+  }
+
+  private boolean addAutomaticMappings(ResultMap resultMap, ResultSetWrapper rsw, MetaClass metaClass, List<ColumnMapping> mappings) throws SQLException {
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+      final String property = metaClass.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+      if (property != null && metaClass.hasSetter(property)) {
+        final Class<?> propertyType = metaClass.getSetterType(property);
+        if (typeHandlerRegistry.hasTypeHandler(propertyType)) {
+          final Method setter = findSetter(resultMap.getType(), property, propertyType);
+          if (setter == null) {
+            return false;
+          }
+          final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+          mappings.add(new ColumnMapping(rsw.getColumnIndex(columnName), setter, propertyType, typeHandler, true));
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean addPropertyMappings(ResultMap resultMap, ResultSetWrapper rsw, MetaClass metaClass, List<ColumnMapping> mappings) throws SQLException {
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    final int[] columnIndexes = rsw.getMappedColumnIndexes(propertyMappings, null);
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null
+          || propertyMapping.getNestedResultMapId() != null || propertyMapping.getNestedQueryId() != null) {
+        return false;
+      }
+      final String property = propertyMapping.getProperty();
+      if (property == null || columnIndexes[i] == 0) {
+        continue;
+      }
+      if (property.indexOf('.') > -1 || property.indexOf('[') > -1 || !metaClass.hasSetter(property)) {
+        return false;
+      }
+      final Class<?> propertyType = metaClass.getSetterType(property);
+      final Method setter = findSetter(resultMap.getType(), property, propertyType);
+      if (setter == null || propertyMapping.getTypeHandler() == null) {
+        return false;
+      }
+      mappings.add(new ColumnMapping(columnIndexes[i], setter, propertyType, propertyMapping.getTypeHandler(), false));
+    }
+    return true;
+  }
+
+  private Method findSetter(Class<?> type, String property, Class<?> propertyType) {
+    for (Method method : type.getMethods()) {
+      if (method.getParameterTypes().length == 1
+          && method.getName().startsWith("set")
+          && method.getParameterTypes()[0].equals(propertyType)
+          && !Modifier.isStatic(method.getModifiers())
+          && property.equals(PropertyNamer.methodToProperty(method.getName()))) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private RowMapper generate(Class<?> type, List<ColumnMapping> mappings) throws Exception {
+    final ClassPool pool = new ClassPool(true);
+    pool.appendClassPath(new ClassClassPath(RowMapper.class));
+    if (type.getClassLoader() != null) {
+      pool.appendClassPath(new LoaderClassPath(type.getClassLoader()));
+    }
+    final String className = RowMapper.class.getName() + "$$Compiled" + classCounter.incrementAndGet();
+    final CtClass ctClass = pool.makeClass(className);
+    ctClass.addInterface(pool.get(RowMapper.class.getName()));
+
+    final StringBuilder constructor = new StringBuilder("public " + ctClass.getSimpleName() + "(" + TypeHandler.class.getName() + "[] h) {");
+    final StringBuilder body = new StringBuilder("public boolean map(java.sql.ResultSet rs, Object resultObject) throws java.sql.SQLException {");
+    final String typeName = sourceName(type);
+    body.append(typeName).append(" target = (").append(typeName).append(") resultObject;");
+    body.append("boolean found = false; Object value;");
+    final boolean callSettersOnNulls = configuration.isCallSettersOnNulls();
+    final TypeHandler<?>[] typeHandlers = new TypeHandler<?>[mappings.size()];
+    for (int i = 0; i < mappings.size(); i++) {
+      final ColumnMapping mapping = mappings.get(i);
+      typeHandlers[i] = mapping.typeHandler;
+      ctClass.addField(CtField.make("private final " + TypeHandler.class.getName() + " h" + i + ";", ctClass));
+      constructor.append("this.h").append(i).append(" = h[").append(i).append("];");
+
+      body.append("value = this.h").append(i).append(".getResult(rs, ").append(mapping.columnIndex).append(");");
+      body.append("if (value != null) { target.").append(mapping.setter.getName()).append('(').append(unbox("value", mapping.propertyType)).append("); found = true; }");
+      // issue #377, call setter on nulls
+      if (callSettersOnNulls) {
+        body.append(" else {");
+        if (!mapping.propertyType.isPrimitive()) {
+          body.append("target.").append(mapping.setter.getName()).append("((").append(sourceName(mapping.propertyType)).append(") null);");
+        }
+        if (mapping.automatic) {
+          body.append("found = true;");
+        }
+        body.append('}');
+      }
+    }
+    constructor.append('}');
+    body.append("return found; }");
+    ctClass.addConstructor(CtNewConstructor.make(constructor.toString(), ctClass));
+    ctClass.addMethod(CtNewMethod.make(body.toString(), ctClass));
+
+    final byte[] bytecode = ctClass.toBytecode();
+    ctClass.detach();
+    final Class<?> rowMapperClass = new RowMapperClassLoader(type.getClassLoader()).define(className, bytecode);
+    return (RowMapper) rowMapperClass.getConstructor(TypeHandler[].class).newInstance(new Object[] { typeHandlers });
+  }
+
+  private String unbox(String variable, Class<?> type) {
+    if (!type.isPrimitive()) {
+      return "(" + sourceName(type) + ") " + variable;
+    }
+    final String wrapper;
+    if (type == int.class) {
+      wrapper = "java.lang.Integer";
+    } else if (type == char.class) {
+      wrapper = "java.lang.Character";
+    } else {
+      final String name = type.getName();
+      wrapper = "java.lang." + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+    return "((" + wrapper + ") " + variable + ")." + type.getName() + "Value()";
+  }
+
+  private String sourceName(Class<?> type) {
+    return type.isArray() ? sourceName(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  private static class ColumnMapping {
+    private final int columnIndex;
+    private final Method setter;
+    private final Class<?> propertyType;
+    private final TypeHandler<?> typeHandler;
+    private final boolean automatic;
+
+    private ColumnMapping(int columnIndex, Method setter, Class<?> propertyType, TypeHandler<?> typeHandler, boolean automatic) {
+      this.columnIndex = columnIndex;
+      this.setter = setter;
+      this.propertyType = propertyType;
+      this.typeHandler = typeHandler;
+      this.automatic = automatic;
+    }
+  }
+
+  /*
+   * Defines each generated mapper as a child of the result type's loader so it can see both
+   * the result type and MyBatis, without reflective access to ClassLoader.defineClass.
+   */
+  private static class RowMapperClassLoader extends ClassLoader {
+
+    RowMapperClassLoader(ClassLoader parent) {
+      super(parent != null ? parent : RowMapper.class.getClassLoader());
+    }
+
+    Class<?> define(String name, byte[] bytecode) {
+      return defineClass(name, bytecode, 0, bytecode.length);
+    }
+  }
+
+}
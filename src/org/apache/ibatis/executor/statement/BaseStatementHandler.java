@@ -62,6 +62,9 @@ public abstract class BaseStatementHandler implements StatementHandler {
     if (boundSql == null) { // issue #435, get the key before calculating the statement
       generateKeys(parameterObject);
       boundSql = mappedStatement.getBoundSql(parameterObject);
+      if (boundSql.getChunks() != null) {
+        throw new ExecutorException("Statement '" + mappedStatement.getId() + "' was split into chunks by a bucketed foreach; only selects can be split.");
+      }
     }
 
     this.boundSql = boundSql;
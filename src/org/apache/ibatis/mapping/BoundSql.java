@@ -41,12 +41,20 @@ public class BoundSql {
   private Object parameterObject;
   private Map<String, Object> additionalParameters;
   private MetaObject metaParameters;
+  private List<BoundSql> chunks;
 
   public BoundSql(Configuration configuration, String sql, List<ParameterMapping> parameterMappings, Object parameterObject) {
+    this(configuration, sql, parameterMappings, parameterObject, new HashMap<String, Object>());
+  }
+
+  /**
+   * @param additionalParameters used as the additional parameters, without copying
+   */
+  public BoundSql(Configuration configuration, String sql, List<ParameterMapping> parameterMappings, Object parameterObject, Map<String, Object> additionalParameters) {
     this.sql = sql;
     this.parameterMappings = parameterMappings;
     this.parameterObject = parameterObject;
-    this.additionalParameters = new HashMap<String, Object>();
+    this.additionalParameters = additionalParameters;
     this.metaParameters = configuration.newMetaObject(additionalParameters);
   }
 
@@ -64,8 +72,8 @@ public class BoundSql {
 
   public boolean hasAdditionalParameter(String name) {
     PropertyTokenizer prop = new PropertyTokenizer(name);
-    String indexedName = prop.getIndexedName();
-    return additionalParameters.containsKey(indexedName);
+    String paramName = prop.getName();
+    return additionalParameters.containsKey(paramName);
   }
 
   public void setAdditionalParameter(String name, Object value) {
@@ -75,4 +83,16 @@ public class BoundSql {
   public Object getAdditionalParameter(String name) {
     return metaParameters.getValue(name);
   }
+
+  /**
+   * @return all the statements to run, this one first, when the SQL had to be split into chunks
+   *         (see the bucketed foreach), or null
+   */
+  public List<BoundSql> getChunks() {
+    return chunks;
+  }
+
+  public void setChunks(List<BoundSql> chunks) {
+    this.chunks = chunks;
+  }
 }
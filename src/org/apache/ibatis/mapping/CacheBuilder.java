@@ -22,14 +22,19 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheCodec;
 import org.apache.ibatis.cache.CacheException;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.CacheMemoryBudget;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
-import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.decorators.MemoryBoundedCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -45,6 +50,8 @@ public class CacheBuilder {
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private Class<? extends CacheCodec> codec;
+  private CacheMemoryBudget memoryBudget;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -68,6 +75,11 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder memoryBudget(CacheMemoryBudget memoryBudget) {
+    this.memoryBudget = memoryBudget;
+    return this;
+  }
+
   public CacheBuilder clearInterval(Long clearInterval) {
     this.clearInterval = clearInterval;
     return this;
@@ -83,6 +95,11 @@ public class CacheBuilder {
     return this;
   }
   
+  public CacheBuilder codec(Class<? extends CacheCodec> codec) {
+    this.codec = codec;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -92,13 +109,23 @@ public class CacheBuilder {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
+    setCacheCodec(cache);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        if (memoryBudget != null && cache instanceof MemoryBoundedCache) {
+          ((MemoryBoundedCache) cache).setMemoryBudget(memoryBudget);
+        }
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, true, readWrite, false);
+    } else if (TinyLfuCache.class.equals(cache.getClass())) {
+      // evicts by itself and is safe for concurrent use, so no eviction decorator and no SynchronizedCache
+      cache = setStandardDecorators(cache, false, readWrite, false);
+    } else if (OffHeapCache.class.equals(cache.getClass())) {
+      // hands out copies and is safe for concurrent use, so no SerializedCache and no SynchronizedCache
+      cache = setStandardDecorators(cache, false, false, ((OffHeapCache) cache).isPersistent());
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
     }
@@ -114,21 +141,26 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean synchronize, boolean serialize, boolean persistent) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
-      if (clearInterval != null) {
-        cache = new ScheduledCache(cache);
-        ((ScheduledCache) cache).setClearInterval(clearInterval);
-      }
-      if (readWrite) {
-        cache = new SerializedCache(cache);
+      if (serialize) {
+        cache = codec == null ? new SerializedCache(cache) : new SerializedCache(cache, newCodecInstance());
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      if (synchronize) {
+        cache = new SynchronizedCache(cache);
+      }
+      // entries expire one by one, after the flush interval or the time to live of their statement
+      cache = new ExpiringCache(cache);
+      if (clearInterval != null) {
+        ((ExpiringCache) cache).setDefaultTimeToLive(clearInterval);
+      }
+      // entries loaded again after a restart have to know when they expire
+      ((ExpiringCache) cache).setKeepExpiryWithValues(persistent);
       if (blocking) {
         cache = new BlockingCache(cache);
       }
@@ -177,6 +209,26 @@ public class CacheBuilder {
     }
   }
 
+  /*
+   * Caches that copy values by themselves, like OffHeapCache, take the codec as a property
+   */
+  private void setCacheCodec(Cache cache) {
+    if (codec != null) {
+      MetaObject metaCache = SystemMetaObject.forObject(cache);
+      if (metaCache.hasSetter("codec") && CacheCodec.class == metaCache.getSetterType("codec")) {
+        metaCache.setValue("codec", newCodecInstance());
+      }
+    }
+  }
+
+  private CacheCodec newCodecInstance() {
+    try {
+      return codec.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache codec (" + codec + "). Cause: " + e, e);
+    }
+  }
+
   private Cache newBaseCacheInstance(Class<? extends Cache> cacheClass, String id) {
     Constructor<? extends Cache> cacheConstructor = getBaseCacheConstructor(cacheClass);
     try {
@@ -18,8 +18,11 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.executor.BatchFlushPolicy;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -33,6 +36,10 @@ import org.apache.ibatis.session.Configuration;
  */
 public final class MappedStatement {
 
+  private static final String[] NO_TABLES = new String[0];
+  // distinct SQL texts of a dynamic statement whose tables are kept
+  private static final int MAX_DERIVED_TABLES = 64;
+
   private String resource;
   private Configuration configuration;
   private String id;
@@ -46,6 +53,7 @@ public final class MappedStatement {
   private List<ResultMap> resultMaps;
   private boolean flushCacheRequired;
   private boolean useCache;
+  private boolean useLocalCache;
   private boolean resultOrdered;
   private SqlCommandType sqlCommandType;
   private KeyGenerator keyGenerator;
@@ -56,6 +64,11 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private BatchFlushPolicy batchFlushPolicy;
+  private String[] tables;
+  private long cacheTimeToLive;
+  private boolean cacheRefreshAhead;
+  private final ConcurrentMap<String, String[]> derivedTables = new ConcurrentHashMap<String, String[]>();
 
   MappedStatement() {
     // constructor disabled
@@ -72,6 +85,7 @@ public final class MappedStatement {
       mappedStatement.parameterMap = new ParameterMap.Builder(configuration, "defaultParameterMap", null, new ArrayList<ParameterMapping>()).build();
       mappedStatement.resultMaps = new ArrayList<ResultMap>();
       mappedStatement.sqlCommandType = sqlCommandType;
+      mappedStatement.useLocalCache = true;
       mappedStatement.keyGenerator = configuration.isUseGeneratedKeys() && SqlCommandType.INSERT.equals(sqlCommandType) ? new Jdbc3KeyGenerator() : new NoKeyGenerator();
       String logId = id;
       if (configuration.getLogPrefix() != null) {
@@ -138,6 +152,11 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder useLocalCache(boolean useLocalCache) {
+      mappedStatement.useLocalCache = useLocalCache;
+      return this;
+    }
+
     public Builder resultOrdered(boolean resultOrdered) {
       mappedStatement.resultOrdered = resultOrdered;
       return this;
@@ -172,6 +191,26 @@ public final class MappedStatement {
       mappedStatement.resultSets = delimitedStringtoArray(resultSet);
       return this;
     }
+
+    public Builder batchFlushPolicy(BatchFlushPolicy batchFlushPolicy) {
+      mappedStatement.batchFlushPolicy = batchFlushPolicy;
+      return this;
+    }
+
+    public Builder tables(String tables) {
+      mappedStatement.tables = SqlTables.split(tables);
+      return this;
+    }
+
+    public Builder cacheTimeToLive(long cacheTimeToLive) {
+      mappedStatement.cacheTimeToLive = cacheTimeToLive;
+      return this;
+    }
+
+    public Builder cacheRefreshAhead(boolean cacheRefreshAhead) {
+      mappedStatement.cacheRefreshAhead = cacheRefreshAhead;
+      return this;
+    }
     
     public MappedStatement build() {
       assert mappedStatement.configuration != null;
@@ -247,6 +286,13 @@ public final class MappedStatement {
     return useCache;
   }
 
+  /**
+   * @return false when the results must not stay in the session-local cache once the outermost query is done
+   */
+  public boolean isUseLocalCache() {
+    return useLocalCache;
+  }
+
   public boolean isResultOrdered() {
     return resultOrdered;
   }
@@ -274,7 +320,59 @@ public final class MappedStatement {
   public String[] getResulSets() {
     return resultSets;
   }
+
+  /**
+   * @return the auto-flush thresholds of this statement in a BATCH session, or null when only the session ones apply
+   */
+  public BatchFlushPolicy getBatchFlushPolicy() {
+    return batchFlushPolicy;
+  }
   
+  /**
+   * @return milliseconds the results of this statement stay in the second level cache, 0 for the default of the cache
+   */
+  public long getCacheTimeToLive() {
+    return cacheTimeToLive;
+  }
+
+  /**
+   * @return true when the cached results of this statement are reloaded in the background before they expire
+   */
+  public boolean isCacheRefreshAhead() {
+    return cacheRefreshAhead;
+  }
+
+  /**
+   * @return the tables declared in the mapper for this statement, or null when they are found in its SQL
+   */
+  public String[] getTables() {
+    return tables;
+  }
+
+  /**
+   * @return the tables this statement reads or writes when run with the given SQL, or null when they are not known
+   */
+  public String[] getTables(BoundSql boundSql) {
+    if (tables != null) {
+      return tables;
+    }
+    if (statementType == StatementType.CALLABLE) {
+      return null;
+    }
+    String sql = boundSql.getSql();
+    String[] found = derivedTables.get(sql);
+    if (found == null) {
+      found = SqlTables.parse(sql);
+      if (found == null) {
+        found = NO_TABLES;
+      }
+      if (derivedTables.size() < MAX_DERIVED_TABLES) {
+        derivedTables.putIfAbsent(sql, found);
+      }
+    }
+    return found.length == 0 ? null : found;
+  }
+
   public BoundSql getBoundSql(Object parameterObject) {
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
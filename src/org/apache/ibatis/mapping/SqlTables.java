@@ -0,0 +1,271 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables a SQL statement reads or writes: the names following FROM, JOIN, INTO, UPDATE, USING and TABLE,
+ * with schema qualifiers and identifier quotes removed and folded to lower case.
+ * The scan is lexical, so a name that is not a table (a CTE name, the operand of EXTRACT(... FROM x)) may be
+ * reported too; that only makes cache invalidation broader, never narrower.
+ */
+public final class SqlTables {
+
+  private static final Set<String> TABLE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "from", "join", "into", "update", "using", "table"));
+
+  private static final Set<String> LIST_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "from", "update", "using"));
+
+  /* UPDATE after these is a clause (FOR UPDATE, ON DUPLICATE KEY UPDATE, DO UPDATE, THEN UPDATE), not a statement */
+  private static final Set<String> UPDATE_CLAUSE_PREFIXES = new HashSet<String>(Arrays.asList(
+      "for", "key", "do", "then"));
+
+  private static final Set<String> TABLE_MODIFIERS = new HashSet<String>(Arrays.asList(
+      "only", "lateral", "ignore", "low_priority"));
+
+  /* clauses ending the table list of a FROM */
+  private static final Set<String> LIST_ENDS = new HashSet<String>(Arrays.asList(
+      "where", "set", "group", "order", "having", "limit", "offset", "fetch", "for", "union", "intersect",
+      "except", "minus", "values", "returning", "window", "start", "connect"));
+
+  private static final Set<String> NOT_ALIASES = new HashSet<String>(Arrays.asList(
+      "where", "set", "on", "using", "join", "inner", "left", "right", "full", "outer", "cross", "natural",
+      "straight_join", "group", "order", "having", "limit", "offset", "fetch", "for", "union", "intersect",
+      "except", "minus", "values", "value", "select", "with", "default", "returning", "output", "when",
+      "window", "start", "connect", "partition"));
+
+  private SqlTables() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @return the tables found in the SQL, or null when none could be found
+   */
+  public static String[] parse(String sql) {
+    Set<String> tables = new LinkedHashSet<String>();
+    Scanner scanner = new Scanner(sql);
+    // parenthesis depths at which a table list is open, so that "JOIN a ON ..., b" still finds b
+    Set<Integer> openLists = new HashSet<Integer>();
+    int depth = 0;
+    String previous = null;
+    while (scanner.next()) {
+      String keyword = scanner.isKeyword() ? scanner.text : null;
+      if (keyword != null && TABLE_KEYWORDS.contains(keyword)
+          && !("update".equals(keyword) && UPDATE_CLAUSE_PREFIXES.contains(previous))) {
+        boolean list = LIST_KEYWORDS.contains(keyword);
+        if (list) {
+          openLists.add(depth);
+        }
+        readTables(scanner, tables, list);
+      } else if (keyword != null && LIST_ENDS.contains(keyword)) {
+        openLists.remove(depth);
+      } else if ("(".equals(scanner.text)) {
+        depth++;
+      } else if (")".equals(scanner.text)) {
+        openLists.remove(depth);
+        depth--;
+      } else if (",".equals(scanner.text) && openLists.contains(depth)) {
+        readTables(scanner, tables, true);
+      }
+      previous = keyword;
+    }
+    return tables.isEmpty() ? null : tables.toArray(new String[tables.size()]);
+  }
+
+  /**
+   * Splits a comma separated list of declared tables, normalizing every name as {@link #parse(String)} does.
+   *
+   * @return the tables, or null when the list is empty
+   */
+  public static String[] split(String declared) {
+    if (declared == null) {
+      return null;
+    }
+    Set<String> tables = new LinkedHashSet<String>();
+    for (String table : declared.split(",")) {
+      Scanner scanner = new Scanner(table);
+      if (scanner.next() && scanner.word) {
+        tables.add(scanner.text);
+      }
+    }
+    return tables.isEmpty() ? null : tables.toArray(new String[tables.size()]);
+  }
+
+  private static void readTables(Scanner scanner, Set<String> tables, boolean list) {
+    while (scanner.next()) {
+      if (!scanner.word) {
+        // a sub query or anything else the main loop has to look into
+        scanner.pushBack();
+        return;
+      }
+      if (scanner.isKeyword() && TABLE_MODIFIERS.contains(scanner.text)) {
+        continue;
+      }
+      tables.add(scanner.text);
+      if (!scanner.next()) {
+        return;
+      }
+      if (scanner.word && !(scanner.isKeyword() && NOT_ALIASES.contains(scanner.text))) {
+        if (scanner.isKeyword() && "as".equals(scanner.text) && !scanner.next()) {
+          return;
+        }
+        if (!scanner.next()) {
+          return;
+        }
+      }
+      if (!list || !",".equals(scanner.text)) {
+        scanner.pushBack();
+        return;
+      }
+    }
+  }
+
+  private static class Scanner {
+
+    private final String sql;
+    private int position;
+    private boolean pushedBack;
+
+    String text;
+    boolean word;
+    boolean quoted;
+
+    Scanner(String sql) {
+      this.sql = sql;
+    }
+
+    boolean isKeyword() {
+      return word && !quoted;
+    }
+
+    void pushBack() {
+      pushedBack = true;
+    }
+
+    boolean next() {
+      if (pushedBack) {
+        pushedBack = false;
+        return true;
+      }
+      skipBlanks();
+      if (position >= sql.length()) {
+        text = null;
+        word = false;
+        quoted = false;
+        return false;
+      }
+      char c = sql.charAt(position);
+      if (c == '\'') {
+        skipQuoted('\'');
+        setToken("'", false, false);
+      } else if (isQuote(c) || isIdentifierStart(c)) {
+        readName();
+      } else if (Character.isDigit(c)) {
+        while (position < sql.length() && (Character.isLetterOrDigit(sql.charAt(position)) || sql.charAt(position) == '.')) {
+          position++;
+        }
+        setToken("0", false, false);
+      } else {
+        position++;
+        setToken(String.valueOf(c), false, false);
+      }
+      return true;
+    }
+
+    /* reads a possibly qualified and quoted name, keeping its last part */
+    private void readName() {
+      boolean anyQuoted = false;
+      String part;
+      while (true) {
+        char c = sql.charAt(position);
+        if (isQuote(c)) {
+          int start = position + 1;
+          skipQuoted(c == '[' ? ']' : c);
+          part = sql.substring(start, Math.max(start, position - 1));
+          anyQuoted = true;
+        } else {
+          int start = position;
+          while (position < sql.length() && isIdentifierPart(sql.charAt(position))) {
+            position++;
+          }
+          part = sql.substring(start, position);
+        }
+        if (position + 1 < sql.length() && sql.charAt(position) == '.'
+            && (isQuote(sql.charAt(position + 1)) || isIdentifierStart(sql.charAt(position + 1)))) {
+          position++;
+        } else {
+          break;
+        }
+      }
+      setToken(part.toLowerCase(Locale.ENGLISH), true, anyQuoted);
+    }
+
+    private void setToken(String text, boolean word, boolean quoted) {
+      this.text = text;
+      this.word = word;
+      this.quoted = quoted;
+    }
+
+    private void skipQuoted(char close) {
+      position++;
+      while (position < sql.length()) {
+        if (sql.charAt(position++) == close) {
+          if (position < sql.length() && sql.charAt(position) == close && close != ']') {
+            position++;
+          } else {
+            return;
+          }
+        }
+      }
+    }
+
+    private void skipBlanks() {
+      while (position < sql.length()) {
+        char c = sql.charAt(position);
+        if (Character.isWhitespace(c)) {
+          position++;
+        } else if (sql.startsWith("--", position)) {
+          int end = sql.indexOf('\n', position);
+          position = end < 0 ? sql.length() : end + 1;
+        } else if (sql.startsWith("/*", position)) {
+          int end = sql.indexOf("*/", position + 2);
+          position = end < 0 ? sql.length() : end + 2;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private static boolean isQuote(char c) {
+      return c == '"' || c == '`' || c == '[';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+      return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+  }
+
+}
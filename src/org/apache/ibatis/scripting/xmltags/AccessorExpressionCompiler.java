@@ -0,0 +1,704 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.scripting.xmltags.DynamicContext.ContextMap;
+
+/**
+ * Compiles the common subset of OGNL used in dynamic SQL (property paths, no-arg method calls,
+ * literals, <code>and or not == != &lt; &lt;= &gt; &gt;=</code> and <code>+ -</code>) into a tree of
+ * accessors. Property reads cache the getter of the last class seen, so repeated evaluation
+ * against the same parameter type does no lookups.
+ * <p>
+ * Expressions outside the subset are handed to OGNL when compiled. Values the tree does not
+ * handle exactly like OGNL (e.g. a char literal compared with a String, or a null in the middle
+ * of a path) make that evaluation fall back to OGNL as well, so results and errors stay the same.
+ */
+public class AccessorExpressionCompiler implements ExpressionCompiler {
+
+  private final ReflectorFactory reflectorFactory;
+
+  public AccessorExpressionCompiler(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  public Expression compile(String expression) {
+    try {
+      return new CompiledExpression(expression, new Parser(expression).parse());
+    } catch (Unsupported e) {
+      return new OgnlExpressionCompiler.OgnlExpression(expression);
+    }
+  }
+
+  /**
+   * Thrown when an expression or a value is outside what the compiled form handles.
+   */
+  private static class Unsupported extends RuntimeException {
+    private static final long serialVersionUID = -6426312305386811468L;
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private static final Unsupported UNSUPPORTED = new Unsupported();
+
+  private static class CompiledExpression implements Expression {
+
+    private final String expression;
+    private final Node root;
+
+    CompiledExpression(String expression, Node root) {
+      this.expression = expression;
+      this.root = root;
+    }
+
+    @Override
+    public Object getValue(Object bindings) {
+      if (bindings instanceof ContextMap) {
+        try {
+          return root.getValue((ContextMap) bindings);
+        } catch (RuntimeException e) {
+          // let OGNL produce the result or the error
+        }
+      }
+      return OgnlCache.getValue(expression, bindings);
+    }
+
+    @Override
+    public String toString() {
+      return expression;
+    }
+  }
+
+  private abstract static class Node {
+    abstract Object getValue(ContextMap bindings);
+  }
+
+  private static class Literal extends Node {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      return value;
+    }
+  }
+
+  /**
+   * A name read from the bindings, the same way as {@link DynamicContext.ContextAccessor}.
+   */
+  private static class Binding extends Node {
+    private final String name;
+
+    Binding(String name) {
+      this.name = name;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object result = bindings.get(name);
+      if (result != null || bindings.containsKey(name)) {
+        return result;
+      }
+      Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      if (parameterObject instanceof Map) {
+        return ((Map<?, ?>) parameterObject).get(name);
+      }
+      return null;
+    }
+  }
+
+  private static final class GetterCache {
+    final Class<?> type;
+    final Invoker invoker;
+
+    GetterCache(Class<?> type, Invoker invoker) {
+      this.type = type;
+      this.invoker = invoker;
+    }
+  }
+
+  private class Property extends Node {
+    private final Node target;
+    private final String name;
+    private volatile GetterCache getter;
+
+    Property(Node target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object object = target.getValue(bindings);
+      if (object == null) {
+        throw UNSUPPORTED;
+      }
+      if (object instanceof Map) {
+        // OGNL answers these from the map itself
+        if ("size".equals(name) || "isEmpty".equals(name) || "keys".equals(name)
+            || "keySet".equals(name) || "values".equals(name)) {
+          throw UNSUPPORTED;
+        }
+        return ((Map<?, ?>) object).get(name);
+      }
+      Class<?> type = object.getClass();
+      GetterCache cache = getter;
+      if (cache == null || cache.type != type) {
+        if (object instanceof Collection || object instanceof Iterator || object instanceof Enumeration
+            || type.isArray() || object instanceof Class) {
+          throw UNSUPPORTED;
+        }
+        Reflector reflector = reflectorFactory.findForClass(type);
+        if (!reflector.hasGetter(name)) {
+          throw UNSUPPORTED;
+        }
+        cache = new GetterCache(type, reflector.getGetInvoker(name));
+        getter = cache;
+      }
+      try {
+        return cache.invoker.invoke(object, null);
+      } catch (Exception e) {
+        throw UNSUPPORTED;
+      }
+    }
+  }
+
+  private static final class MethodCache {
+    final Class<?> type;
+    final Method method;
+
+    MethodCache(Class<?> type, Method method) {
+      this.type = type;
+      this.method = method;
+    }
+  }
+
+  private static class MethodCall extends Node {
+    private final Node target;
+    private final String name;
+    private volatile MethodCache method;
+
+    MethodCall(Node target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object object = target.getValue(bindings);
+      if (object == null) {
+        throw UNSUPPORTED;
+      }
+      Class<?> type = object.getClass();
+      MethodCache cache = method;
+      if (cache == null || cache.type != type) {
+        cache = new MethodCache(type, findPublicMethod(type, name));
+        method = cache;
+      }
+      try {
+        return cache.method.invoke(object);
+      } catch (Exception e) {
+        throw UNSUPPORTED;
+      }
+    }
+
+    /**
+     * Finds the method on a public type, since e.g. the list returned by
+     * {@link java.util.Arrays#asList(Object...)} is a private class.
+     */
+    private static Method findPublicMethod(Class<?> type, String name) {
+      for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+        if (Modifier.isPublic(current.getModifiers())) {
+          try {
+            return current.getMethod(name);
+          } catch (NoSuchMethodException e) {
+            throw UNSUPPORTED;
+          }
+        }
+        for (Class<?> iface : current.getInterfaces()) {
+          Method method = findInterfaceMethod(iface, name);
+          if (method != null) {
+            return method;
+          }
+        }
+      }
+      throw UNSUPPORTED;
+    }
+
+    private static Method findInterfaceMethod(Class<?> iface, String name) {
+      if (Modifier.isPublic(iface.getModifiers())) {
+        try {
+          return iface.getMethod(name);
+        } catch (NoSuchMethodException e) {
+          return null;
+        }
+      }
+      for (Class<?> parent : iface.getInterfaces()) {
+        Method method = findInterfaceMethod(parent, name);
+        if (method != null) {
+          return method;
+        }
+      }
+      return null;
+    }
+  }
+
+  private static class Not extends Node {
+    private final Node operand;
+
+    Not(Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      return booleanValue(operand.getValue(bindings)) ? Boolean.FALSE : Boolean.TRUE;
+    }
+  }
+
+  /**
+   * Like OGNL, yields the last operand evaluated rather than a Boolean.
+   */
+  private static class Logical extends Node {
+    private final Node[] operands;
+    private final boolean or;
+
+    Logical(List<Node> operands, boolean or) {
+      this.operands = operands.toArray(new Node[operands.size()]);
+      this.or = or;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object result = null;
+      for (Node operand : operands) {
+        result = operand.getValue(bindings);
+        if (booleanValue(result) == or) {
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  private static class Equality extends Node {
+    private final Node left;
+    private final Node right;
+    private final boolean negated;
+
+    Equality(Node left, Node right, boolean negated) {
+      this.left = left;
+      this.right = right;
+      this.negated = negated;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object v1 = left.getValue(bindings);
+      Object v2 = right.getValue(bindings);
+      boolean equal;
+      if (v1 == null || v2 == null || v1 == v2) {
+        equal = v1 == v2;
+      } else if (v1 instanceof String && v2 instanceof String
+          || v1 instanceof Boolean && v2 instanceof Boolean) {
+        equal = v1.equals(v2);
+      } else if (isIntegral(v1) && isIntegral(v2)) {
+        equal = ((Number) v1).longValue() == ((Number) v2).longValue();
+      } else {
+        throw UNSUPPORTED;
+      }
+      return equal != negated ? Boolean.TRUE : Boolean.FALSE;
+    }
+  }
+
+  private static class Comparison extends Node {
+    private final Node left;
+    private final Node right;
+    private final String operator;
+
+    Comparison(Node left, Node right, String operator) {
+      this.left = left;
+      this.right = right;
+      this.operator = operator;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object v1 = left.getValue(bindings);
+      Object v2 = right.getValue(bindings);
+      int result;
+      if (v1 instanceof String && v2 instanceof String) {
+        result = ((String) v1).compareTo((String) v2);
+      } else if (isIntegral(v1) && isIntegral(v2)) {
+        long l1 = ((Number) v1).longValue();
+        long l2 = ((Number) v2).longValue();
+        result = l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+      } else {
+        throw UNSUPPORTED;
+      }
+      boolean answer;
+      if ("<".equals(operator)) {
+        answer = result < 0;
+      } else if ("<=".equals(operator)) {
+        answer = result <= 0;
+      } else if (">".equals(operator)) {
+        answer = result > 0;
+      } else {
+        answer = result >= 0;
+      }
+      return answer ? Boolean.TRUE : Boolean.FALSE;
+    }
+  }
+
+  private static class Arithmetic extends Node {
+    private final Node left;
+    private final Node right;
+    private final boolean subtract;
+
+    Arithmetic(Node left, Node right, boolean subtract) {
+      this.left = left;
+      this.right = right;
+      this.subtract = subtract;
+    }
+
+    @Override
+    Object getValue(ContextMap bindings) {
+      Object v1 = left.getValue(bindings);
+      Object v2 = right.getValue(bindings);
+      if (isIntOrLong(v1) && isIntOrLong(v2)) {
+        long l1 = ((Number) v1).longValue();
+        long l2 = ((Number) v2).longValue();
+        long value = subtract ? l1 - l2 : l1 + l2;
+        if (v1 instanceof Integer && v2 instanceof Integer) {
+          return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+      }
+      if (!subtract && (v1 instanceof String || v2 instanceof String)
+          && (v1 instanceof String || isIntOrLong(v1)) && (v2 instanceof String || isIntOrLong(v2))) {
+        return String.valueOf(v1) + String.valueOf(v2);
+      }
+      throw UNSUPPORTED;
+    }
+  }
+
+  private static boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean) {
+      return ((Boolean) value).booleanValue();
+    }
+    if (value instanceof Character) {
+      return ((Character) value).charValue() != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private static boolean isIntOrLong(Object value) {
+    return value instanceof Integer || value instanceof Long;
+  }
+
+  /**
+   * Recursive descent parser following OGNL's operator precedence.
+   */
+  private class Parser {
+    private final String text;
+    private int position;
+    private String token;
+    private Object literal;
+
+    Parser(String text) {
+      this.text = text;
+      next();
+    }
+
+    Node parse() {
+      Node node = parseOr();
+      if (token != null) {
+        throw UNSUPPORTED;
+      }
+      return node;
+    }
+
+    private Node parseOr() {
+      Node first = parseAnd();
+      if (!isToken("or") && !isToken("||")) {
+        return first;
+      }
+      List<Node> operands = new ArrayList<Node>();
+      operands.add(first);
+      while (isToken("or") || isToken("||")) {
+        next();
+        operands.add(parseAnd());
+      }
+      return new Logical(operands, true);
+    }
+
+    private Node parseAnd() {
+      Node first = parseEquality();
+      if (!isToken("and") && !isToken("&&")) {
+        return first;
+      }
+      List<Node> operands = new ArrayList<Node>();
+      operands.add(first);
+      while (isToken("and") || isToken("&&")) {
+        next();
+        operands.add(parseEquality());
+      }
+      return new Logical(operands, false);
+    }
+
+    private Node parseEquality() {
+      Node node = parseComparison();
+      while (true) {
+        if (isToken("==") || isToken("eq")) {
+          next();
+          node = new Equality(node, parseComparison(), false);
+        } else if (isToken("!=") || isToken("neq")) {
+          next();
+          node = new Equality(node, parseComparison(), true);
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseComparison() {
+      Node node = parseAdditive();
+      while (true) {
+        String operator;
+        if (isToken("<") || isToken("lt")) {
+          operator = "<";
+        } else if (isToken("<=") || isToken("lte")) {
+          operator = "<=";
+        } else if (isToken(">") || isToken("gt")) {
+          operator = ">";
+        } else if (isToken(">=") || isToken("gte")) {
+          operator = ">=";
+        } else {
+          return node;
+        }
+        next();
+        node = new Comparison(node, parseAdditive(), operator);
+      }
+    }
+
+    private Node parseAdditive() {
+      Node node = parseUnary();
+      while (isToken("+") || isToken("-")) {
+        boolean subtract = isToken("-");
+        next();
+        node = new Arithmetic(node, parseUnary(), subtract);
+      }
+      return node;
+    }
+
+    private Node parseUnary() {
+      if (isToken("!") || isToken("not")) {
+        next();
+        return new Not(parseUnary());
+      }
+      return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+      if (token == null) {
+        throw UNSUPPORTED;
+      }
+      if (isToken("(")) {
+        next();
+        Node node = parseOr();
+        expect(")");
+        return node;
+      }
+      if (isToken("\"") || isToken("#")) {
+        Node node = new Literal(literal);
+        next();
+        return node;
+      }
+      if (isToken("null") || isToken("true") || isToken("false")) {
+        Node node = new Literal(isToken("null") ? null : Boolean.valueOf(token));
+        next();
+        return node;
+      }
+      if (!isIdentifier(token) || isKeyword(token)) {
+        throw UNSUPPORTED;
+      }
+      Node node = new Binding(token);
+      next();
+      if (isToken("(")) {
+        // static or root method calls
+        throw UNSUPPORTED;
+      }
+      while (isToken(".")) {
+        next();
+        if (token == null || !isIdentifier(token) || isKeyword(token)) {
+          throw UNSUPPORTED;
+        }
+        String name = token;
+        next();
+        if (isToken("(")) {
+          next();
+          expect(")");
+          node = new MethodCall(node, name);
+        } else {
+          node = new Property(node, name);
+        }
+      }
+      return node;
+    }
+
+    private boolean isToken(String expected) {
+      return expected.equals(token);
+    }
+
+    private void expect(String expected) {
+      if (!isToken(expected)) {
+        throw UNSUPPORTED;
+      }
+      next();
+    }
+
+    /**
+     * Reads the next token. String literals become the token <code>"</code> and numbers the token
+     * <code>#</code>, with the value in {@link #literal}.
+     */
+    private void next() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+      if (position >= text.length()) {
+        token = null;
+        return;
+      }
+      char c = text.charAt(position);
+      int start = position;
+      if (Character.isJavaIdentifierStart(c)) {
+        while (position < text.length() && Character.isJavaIdentifierPart(text.charAt(position))) {
+          position++;
+        }
+        token = text.substring(start, position);
+      } else if (Character.isDigit(c)) {
+        readNumber();
+      } else if (c == '\'' || c == '"') {
+        int end = text.indexOf(c, start + 1);
+        if (end < 0) {
+          throw UNSUPPORTED;
+        }
+        String value = text.substring(start + 1, end);
+        if (value.indexOf('\\') >= 0) {
+          throw UNSUPPORTED;
+        }
+        // OGNL reads a single quoted character as a char
+        literal = c == '\'' && value.length() == 1 ? (Object) Character.valueOf(value.charAt(0)) : value;
+        token = "\"";
+        position = end + 1;
+      } else {
+        String two = position + 1 < text.length() ? text.substring(position, position + 2) : null;
+        if ("==".equals(two) || "!=".equals(two) || "<=".equals(two) || ">=".equals(two)
+            || "&&".equals(two) || "||".equals(two)) {
+          token = two;
+          position += 2;
+        } else if ("()<>!+-.".indexOf(c) >= 0) {
+          token = String.valueOf(c);
+          position++;
+        } else {
+          throw UNSUPPORTED;
+        }
+      }
+    }
+
+    private void readNumber() {
+      int start = position;
+      while (position < text.length() && Character.isDigit(text.charAt(position))) {
+        position++;
+      }
+      boolean decimal = false;
+      if (position + 1 < text.length() && text.charAt(position) == '.' && Character.isDigit(text.charAt(position + 1))) {
+        decimal = true;
+        position++;
+        while (position < text.length() && Character.isDigit(text.charAt(position))) {
+          position++;
+        }
+      }
+      String digits = text.substring(start, position);
+      if (digits.length() > 18) {
+        throw UNSUPPORTED;
+      }
+      char suffix = position < text.length() ? text.charAt(position) : ' ';
+      if (Character.isJavaIdentifierPart(suffix) || suffix == '.') {
+        if (decimal || (suffix != 'l' && suffix != 'L')) {
+          throw UNSUPPORTED;
+        }
+        position++;
+        literal = Long.valueOf(digits);
+      } else if (decimal) {
+        literal = Double.valueOf(digits);
+      } else if (digits.length() > 1 && digits.charAt(0) == '0') {
+        // octal
+        throw UNSUPPORTED;
+      } else {
+        long value = Long.parseLong(digits);
+        if (value > Integer.MAX_VALUE) {
+          throw UNSUPPORTED;
+        }
+        literal = Integer.valueOf((int) value);
+      }
+      token = "#";
+    }
+
+    private boolean isIdentifier(String value) {
+      return Character.isJavaIdentifierStart(value.charAt(0));
+    }
+
+    private boolean isKeyword(String value) {
+      return "or".equals(value) || "and".equals(value) || "not".equals(value) || "eq".equals(value)
+          || "neq".equals(value) || "lt".equals(value) || "lte".equals(value) || "gt".equals(value)
+          || "gte".equals(value) || "in".equals(value) || "instanceof".equals(value) || "new".equals(value)
+          || "shl".equals(value) || "shr".equals(value) || "ushr".equals(value) || "band".equals(value)
+          || "bor".equals(value) || "xor".equals(value) || "null".equals(value) || "true".equals(value)
+          || "false".equals(value);
+    }
+  }
+
+}
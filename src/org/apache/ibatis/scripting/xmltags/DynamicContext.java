@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,7 +24,11 @@ import ognl.OgnlException;
 import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -39,35 +44,120 @@ public class DynamicContext {
   }
 
   private final ContextMap bindings;
-  private final StringBuilder sqlBuilder = new StringBuilder();
+  private final StringBuilder sqlBuilder;
   private int uniqueNumber = 0;
+  private final CacheKey shape;
+  private int chunk;
+  private int chunkCount = 1;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
-    if (parameterObject != null && !(parameterObject instanceof Map)) {
-      MetaObject metaObject = configuration.newMetaObject(parameterObject);
-      bindings = new ContextMap(metaObject);
+    this(configuration, parameterObject, false);
+  }
+
+  /**
+   * @param shapeOnly when true the context only records the branches taken and the types bound
+   *        while the nodes are applied, and does not build the SQL text
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, boolean shapeOnly) {
+    if (shapeOnly) {
+      shape = new CacheKey();
+      shape.update(parameterObject == null ? null : parameterObject.getClass());
     } else {
-      bindings = new ContextMap(null);
+      shape = null;
     }
+    sqlBuilder = new StringBuilder();
+    bindings = new ContextMap(configuration, parameterObject);
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
     bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
   }
 
+  /**
+   * For contexts that wrap another one and override its methods, so no bindings or buffer are
+   * allocated for each wrapper.
+   */
+  protected DynamicContext(DynamicContext delegate) {
+    shape = null;
+    sqlBuilder = null;
+    bindings = delegate.bindings;
+  }
+
+  void ensureSqlCapacity(int capacity) {
+    sqlBuilder.ensureCapacity(capacity);
+  }
+
   public Map<String, Object> getBindings() {
     return bindings;
   }
 
   public void bind(String name, Object value) {
     bindings.put(name, value);
+    if (shape != null) {
+      // parameter mappings take their types from the bound values
+      shape.update(name);
+      shape.update(value == null ? null : value.getClass());
+    }
   }
 
   public void appendSql(String sql) {
-    sqlBuilder.append(sql);
-    sqlBuilder.append(" ");
+    if (shape == null) {
+      sqlBuilder.append(sql);
+      sqlBuilder.append(" ");
+    }
+  }
+
+  /**
+   * Records a decision that changes the generated SQL, such as a test result,
+   * a loop count or a substituted value.
+   */
+  public void recordShape(Object decision) {
+    if (shape != null) {
+      shape.update(decision);
+    }
+  }
+
+  public boolean isShapeOnly() {
+    return shape != null;
+  }
+
+  /**
+   * @return the decisions recorded so far, or null if this context builds SQL
+   */
+  public CacheKey getShape() {
+    return shape;
+  }
+
+  /**
+   * Called by a node whose content is too large for a single statement: the statement will be
+   * run once per chunk and the results merged. Only one node per statement may split it.
+   *
+   * @return the chunk this context renders
+   */
+  public int splitIntoChunks(int chunkCount) {
+    if (this.chunkCount > 1) {
+      throw new BuilderException("Only one <foreach> per statement can be split into chunks.");
+    }
+    this.chunkCount = chunkCount;
+    return chunk;
+  }
+
+  public int getChunkCount() {
+    return chunkCount;
+  }
+
+  public void setChunk(int chunk) {
+    this.chunk = chunk;
   }
 
   public String getSql() {
-    return sqlBuilder.toString().trim();
+    int start = 0;
+    int end = sqlBuilder.length();
+    while (start < end && sqlBuilder.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && sqlBuilder.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return sqlBuilder.substring(start, end);
   }
 
   public int getUniqueNumber() {
@@ -77,25 +167,63 @@ public class DynamicContext {
   static class ContextMap extends HashMap<String, Object> {
     private static final long serialVersionUID = 2977601501966151582L;
 
+    private final Configuration configuration;
+    private final Object parameterObject;
     private MetaObject parameterMetaObject;
-    public ContextMap(MetaObject parameterMetaObject) {
-      this.parameterMetaObject = parameterMetaObject;
+    private Reflector parameterReflector;
+    private boolean reflectorResolved;
+
+    public ContextMap(Configuration configuration, Object parameterObject) {
+      this.configuration = configuration;
+      // map parameters are read by ContextAccessor
+      this.parameterObject = parameterObject instanceof Map ? null : parameterObject;
     }
 
     @Override
     public Object get(Object key) {
       String strKey = (String) key;
-      if (super.containsKey(strKey)) {
-        return super.get(strKey);
+      Object value = super.get(strKey);
+      if (value != null || super.containsKey(strKey)) {
+        return value;
       }
 
-      if (parameterMetaObject != null) {
+      if (parameterObject != null) {
         // issue #61 do not modify the context when reading
-        return parameterMetaObject.getValue(strKey);
+        return getParameterValue(strKey);
       }
 
       return null;
     }
+
+    /**
+     * Plain property names of a bean are read straight from its cached getters; paths and other
+     * parameter types go through a MetaObject, created on first use.
+     */
+    private Object getParameterValue(String name) {
+      Reflector reflector = getParameterReflector();
+      if (reflector != null && reflector.hasGetter(name)) {
+        try {
+          return reflector.getGetInvoker(name).invoke(parameterObject, null);
+        } catch (Exception e) {
+          // let MetaObject report it
+        }
+      }
+      if (parameterMetaObject == null) {
+        parameterMetaObject = configuration.newMetaObject(parameterObject);
+      }
+      return parameterMetaObject.getValue(name);
+    }
+
+    private Reflector getParameterReflector() {
+      if (!reflectorResolved) {
+        reflectorResolved = true;
+        if (!(parameterObject instanceof Collection) && !(parameterObject instanceof ObjectWrapper)
+            && !configuration.getObjectWrapperFactory().hasWrapperFor(parameterObject)) {
+          parameterReflector = configuration.getReflectorFactory().findForClass(parameterObject.getClass());
+        }
+      }
+      return parameterReflector;
+    }
   }
 
   static class ContextAccessor implements PropertyAccessor {
@@ -15,20 +15,37 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 
 /**
+ * When {@link Configuration#getDynamicSqlPlanCacheSize()} is positive, the parsed SQL is kept per
+ * branch shape: the nodes are first applied in shape-only mode, recording test results, loop
+ * counts and substituted values, and a cached plan with the same shape is reused without
+ * building and parsing the SQL text again.
+ *
  * @author Clinton Begin
  */
 public class DynamicSqlSource implements SqlSource {
 
   private Configuration configuration;
   private SqlNode rootSqlNode;
+  private final ConcurrentMap<CacheKey, Plan> plans = new ConcurrentHashMap<CacheKey, Plan>();
+  private final AtomicLong planCacheHits = new AtomicLong();
+  private final AtomicLong planCacheMisses = new AtomicLong();
+  private volatile int sqlLength;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
@@ -37,16 +54,111 @@ public class DynamicSqlSource implements SqlSource {
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
+    int planCacheSize = configuration.getDynamicSqlPlanCacheSize();
+    if (planCacheSize <= 0) {
+      return buildBoundSql(parameterObject, null);
+    }
+    DynamicContext shapeContext = new DynamicContext(configuration, parameterObject, true);
+    rootSqlNode.apply(shapeContext);
+    if (shapeContext.getChunkCount() > 1) {
+      return buildBoundSql(parameterObject, null);
+    }
+    CacheKey shape = shapeContext.getShape();
+    Plan plan = plans.get(shape);
+    if (plan != null) {
+      MetaObject metaParameters = configuration.newMetaObject(shapeContext.getBindings());
+      if (plan.matches(metaParameters)) {
+        planCacheHits.incrementAndGet();
+        return plan.sqlSource.getBoundSql(parameterObject, shapeContext.getBindings());
+      }
+    }
+    planCacheMisses.incrementAndGet();
+    return buildBoundSql(parameterObject, plans.size() < planCacheSize ? shape : null);
+  }
+
+  private BoundSql buildBoundSql(Object parameterObject, CacheKey shape) {
     DynamicContext context = new DynamicContext(configuration, parameterObject);
+    BoundSql boundSql = buildBoundSql(context, parameterObject, shape);
+    if (context.getChunkCount() > 1) {
+      List<BoundSql> chunks = new ArrayList<BoundSql>();
+      // a chunk must not carry the chunks itself, or the executors would split it again
+      chunks.add(new BoundSql(configuration, boundSql.getSql(), boundSql.getParameterMappings(), parameterObject, context.getBindings()));
+      for (int chunk = 1; chunk < context.getChunkCount(); chunk++) {
+        DynamicContext chunkContext = new DynamicContext(configuration, parameterObject);
+        chunkContext.setChunk(chunk);
+        chunks.add(buildBoundSql(chunkContext, parameterObject, null));
+      }
+      boundSql.setChunks(chunks);
+    }
+    return boundSql;
+  }
+
+  private BoundSql buildBoundSql(DynamicContext context, Object parameterObject, CacheKey shape) {
+    // size the buffer after the previous SQL
+    context.ensureSqlCapacity(sqlLength);
     rootSqlNode.apply(context);
+    String sql = context.getSql();
+    sqlLength = sql.length() + 16;
     SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
-    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
-    for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
-      boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
+    StaticSqlSource sqlSource = sqlSourceParser.parse(sql, parameterType, context.getBindings());
+    // the bindings become the additional parameters as they are
+    BoundSql boundSql = sqlSource.getBoundSql(parameterObject, context.getBindings());
+    if (shape != null) {
+      MetaObject metaParameters = configuration.newMetaObject(context.getBindings());
+      plans.put(shape, new Plan(sqlSource, boundSql.getParameterMappings(), metaParameters));
     }
     return boundSql;
   }
 
+  public long getPlanCacheHits() {
+    return planCacheHits.get();
+  }
+
+  public long getPlanCacheMisses() {
+    return planCacheMisses.get();
+  }
+
+  public int getPlanCount() {
+    return plans.size();
+  }
+
+  /**
+   * A parsed statement together with the types its parameter mappings took from the bindings.
+   * Those types come from the runtime values (e.g. the entries of a map), so they are checked
+   * again before the plan is reused.
+   */
+  private static class Plan {
+
+    private final StaticSqlSource sqlSource;
+    private final String[] properties;
+    private final Class<?>[] bindingTypes;
+
+    Plan(StaticSqlSource sqlSource, List<ParameterMapping> parameterMappings, MetaObject metaParameters) {
+      this.sqlSource = sqlSource;
+      this.properties = new String[parameterMappings.size()];
+      this.bindingTypes = new Class<?>[parameterMappings.size()];
+      for (int i = 0; i < properties.length; i++) {
+        properties[i] = parameterMappings.get(i).getProperty();
+        bindingTypes[i] = bindingType(metaParameters, properties[i]);
+      }
+    }
+
+    boolean matches(MetaObject metaParameters) {
+      for (int i = 0; i < properties.length; i++) {
+        if (bindingTypes[i] != bindingType(metaParameters, properties[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static Class<?> bindingType(MetaObject metaParameters, String property) {
+      if (property != null && metaParameters.hasGetter(property)) {
+        return metaParameters.getGetterType(property);
+      }
+      return null;
+    }
+  }
+
 }
@@ -0,0 +1,29 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * An expression from a dynamic SQL tag (<code>&lt;if test&gt;</code>, <code>&lt;when test&gt;</code>,
+ * <code>&lt;bind value&gt;</code>), prepared once when the statement is built.
+ */
+public interface Expression {
+
+  /**
+   * @param root the bindings of a {@link DynamicContext}
+   */
+  Object getValue(Object root);
+
+}
@@ -29,7 +29,14 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return booleanValue(OgnlCache.getValue(expression, parameterObject));
+  }
+
+  public boolean evaluateBoolean(Expression expression, Object parameterObject) {
+    return booleanValue(expression.getValue(parameterObject));
+  }
+
+  private boolean booleanValue(Object value) {
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -15,8 +15,11 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
 import org.apache.ibatis.session.Configuration;
@@ -35,9 +38,22 @@ public class ForEachSqlNode implements SqlNode {
   private String separator;
   private String item;
   private String index;
+  private boolean bucketed;
+  private int maxBucketSize;
   private Configuration configuration;
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, false, 0);
+  }
+
+  /**
+   * @param bucketed when true the items are padded, by repeating the last one, to the next power of two
+   *        and bound as one array, so lists of similar length share the same SQL. Meant for IN-lists.
+   * @param maxBucketSize the largest bucket; longer lists split the statement into chunks that are run
+   *        separately and merged. 0 uses {@link Configuration#getForeachMaxBucketSize()}.
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+      boolean bucketed, int maxBucketSize) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
     this.contents = contents;
@@ -46,6 +62,8 @@ public class ForEachSqlNode implements SqlNode {
     this.separator = separator;
     this.index = index;
     this.item = item;
+    this.bucketed = bucketed;
+    this.maxBucketSize = maxBucketSize;
     this.configuration = configuration;
   }
 
@@ -54,8 +72,12 @@ public class ForEachSqlNode implements SqlNode {
     Map<String, Object> bindings = context.getBindings();
     final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
     if (!iterable.iterator().hasNext()) {
+      context.recordShape(Integer.valueOf(0));
       return true;
     }
+    if (bucketed) {
+      return applyBuckets(context, iterable);
+    }
     boolean first = true;
     applyOpen(context);
     int i = 0;
@@ -79,7 +101,7 @@ public class ForEachSqlNode implements SqlNode {
         applyIndex(context, i, uniqueNumber);
         applyItem(context, o, uniqueNumber);
       }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
+      contents.apply(new FilteredDynamicContext(configuration, context, index, item, itemizeItem(index, uniqueNumber), itemizeItem(item, uniqueNumber)));
       if (first) {
         first = !((PrefixedContext) context).isPrefixApplied();
       }
@@ -87,6 +109,72 @@ public class ForEachSqlNode implements SqlNode {
       i++;
     }
     applyClose(context);
+    context.recordShape(Integer.valueOf(i));
+    return true;
+  }
+
+  private boolean applyBuckets(DynamicContext context, Iterable<?> iterable) {
+    List<Object> items = new ArrayList<Object>();
+    List<Object> indexes = new ArrayList<Object>();
+    int i = 0;
+    for (Object o : iterable) {
+      if (o instanceof Map.Entry) {
+        Map.Entry<?, ?> mapEntry = (Map.Entry<?, ?>) o;
+        indexes.add(mapEntry.getKey());
+        items.add(mapEntry.getValue());
+      } else {
+        indexes.add(i);
+        items.add(o);
+      }
+      i++;
+    }
+    int max = maxBucketSize > 0 ? maxBucketSize : configuration.getForeachMaxBucketSize();
+    int from = 0;
+    if (items.size() > max) {
+      from = context.splitIntoChunks((items.size() + max - 1) / max) * max;
+    }
+    int count = Math.min(items.size() - from, max);
+    int bucket = Math.min(Integer.highestOneBit(count - 1) << 1, max);
+    if (count == 1) {
+      bucket = 1;
+    }
+    Object[] itemValues = new Object[bucket];
+    Object[] indexValues = new Object[bucket];
+    for (int j = 0; j < bucket; j++) {
+      int source = from + Math.min(j, count - 1);
+      itemValues[j] = items.get(source);
+      indexValues[j] = indexes.get(source);
+    }
+    int uniqueNumber = context.getUniqueNumber();
+    String itemName = itemizeItem(item, uniqueNumber);
+    String indexName = itemizeItem(index, uniqueNumber);
+    if (item != null) {
+      context.bind(itemName, itemValues);
+    }
+    if (index != null) {
+      context.bind(indexName, indexValues);
+    }
+    applyOpen(context);
+    boolean first = true;
+    for (int j = 0; j < bucket; j++) {
+      DynamicContext oldContext = context;
+      context = new PrefixedContext(context, first || separator == null ? "" : separator);
+      if (item != null) {
+        context.bind(item, itemValues[j]);
+      }
+      if (index != null) {
+        context.bind(index, indexValues[j]);
+      }
+      String position = "[" + j + "]";
+      contents.apply(new FilteredDynamicContext(configuration, context, index, item, indexName + position, itemName + position));
+      if (first) {
+        first = !((PrefixedContext) context).isPrefixApplied();
+      }
+      context = oldContext;
+    }
+    applyClose(context);
+    context.recordShape("bucket");
+    context.recordShape(Integer.valueOf(bucket));
     return true;
   }
 
@@ -117,21 +205,26 @@ public class ForEachSqlNode implements SqlNode {
   }
 
   private static String itemizeItem(String item, int i) {
+    if (item == null) {
+      return null;
+    }
     return new StringBuilder(ITEM_PREFIX).append(item).append("_").append(i).toString();
   }
 
   private static class FilteredDynamicContext extends DynamicContext {
     private DynamicContext delegate;
-    private int index;
     private String itemIndex;
     private String item;
+    private String itemIndexName;
+    private String itemName;
 
-    public FilteredDynamicContext(Configuration configuration,DynamicContext delegate, String itemIndex, String item, int i) {
-      super(configuration, null);
+    public FilteredDynamicContext(Configuration configuration, DynamicContext delegate, String itemIndex, String item, String itemIndexName, String itemName) {
+      super(delegate);
       this.delegate = delegate;
-      this.index = i;
       this.itemIndex = itemIndex;
       this.item = item;
+      this.itemIndexName = itemIndexName;
+      this.itemName = itemName;
     }
 
     @Override
@@ -151,12 +244,15 @@ public class ForEachSqlNode implements SqlNode {
 
     @Override
     public void appendSql(String sql) {
+      if (delegate.isShapeOnly()) {
+        return;
+      }
       GenericTokenParser parser = new GenericTokenParser("#{", "}", new TokenHandler() {
         @Override
         public String handleToken(String content) {
-          String newContent = content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemizeItem(item, index));
+          String newContent = item == null ? content : content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemName);
           if (itemIndex != null && newContent.equals(content)) {
-            newContent = content.replaceFirst("^\\s*" + itemIndex + "(?![^.,:\\s])", itemizeItem(itemIndex, index));
+            newContent = content.replaceFirst("^\\s*" + itemIndex + "(?![^.,:\\s])", itemIndexName);
           }
           return new StringBuilder("#{").append(newContent).append("}").toString();
         }
@@ -170,6 +266,31 @@ public class ForEachSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public void recordShape(Object decision) {
+      delegate.recordShape(decision);
+    }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
+    @Override
+    public CacheKey getShape() {
+      return delegate.getShape();
+    }
+
+    @Override
+    public int splitIntoChunks(int chunkCount) {
+      return delegate.splitIntoChunks(chunkCount);
+    }
+
+    @Override
+    public int getChunkCount() {
+      return delegate.getChunkCount();
+    }
+
   }
 
 
@@ -179,7 +300,7 @@ public class ForEachSqlNode implements SqlNode {
     private boolean prefixApplied;
 
     public PrefixedContext(DynamicContext delegate, String prefix) {
-      super(configuration, null);
+      super(delegate);
       this.delegate = delegate;
       this.prefix = prefix;
       this.prefixApplied = false;
@@ -217,6 +338,31 @@ public class ForEachSqlNode implements SqlNode {
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
     }
+
+    @Override
+    public void recordShape(Object decision) {
+      delegate.recordShape(decision);
+    }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
+    @Override
+    public CacheKey getShape() {
+      return delegate.getShape();
+    }
+
+    @Override
+    public int splitIntoChunks(int chunkCount) {
+      return delegate.splitIntoChunks(chunkCount);
+    }
+
+    @Override
+    public int getChunkCount() {
+      return delegate.getChunkCount();
+    }
   }
 
 }
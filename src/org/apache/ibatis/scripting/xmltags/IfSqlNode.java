@@ -20,10 +20,14 @@ package org.apache.ibatis.scripting.xmltags;
  */
 public class IfSqlNode implements SqlNode {
   private ExpressionEvaluator evaluator;
-  private String test;
+  private Expression test;
   private SqlNode contents;
 
   public IfSqlNode(SqlNode contents, String test) {
+    this(contents, new OgnlExpressionCompiler().compile(test));
+  }
+
+  public IfSqlNode(SqlNode contents, Expression test) {
     this.test = test;
     this.contents = contents;
     this.evaluator = new ExpressionEvaluator();
@@ -32,9 +36,11 @@ public class IfSqlNode implements SqlNode {
   @Override
   public boolean apply(DynamicContext context) {
     if (evaluator.evaluateBoolean(test, context.getBindings())) {
+      context.recordShape(Boolean.TRUE);
       contents.apply(context);
       return true;
     }
+    context.recordShape(Boolean.FALSE);
     return false;
   }
 
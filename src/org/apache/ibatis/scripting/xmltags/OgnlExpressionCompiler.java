@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Evaluates every expression with OGNL.
+ */
+public class OgnlExpressionCompiler implements ExpressionCompiler {
+
+  @Override
+  public Expression compile(String expression) {
+    return new OgnlExpression(expression);
+  }
+
+  static class OgnlExpression implements Expression {
+
+    private final String expression;
+
+    OgnlExpression(String expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    public Object getValue(Object root) {
+      return OgnlCache.getValue(expression, root);
+    }
+
+    @Override
+    public String toString() {
+      return expression;
+    }
+  }
+
+}
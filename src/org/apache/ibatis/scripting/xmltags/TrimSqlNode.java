@@ -22,6 +22,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -76,7 +77,7 @@ public class TrimSqlNode implements SqlNode {
     private StringBuilder sqlBuffer;
 
     public FilteredDynamicContext(DynamicContext delegate) {
-      super(configuration, null);
+      super(delegate);
       this.delegate = delegate;
       this.prefixApplied = false;
       this.suffixApplied = false;
@@ -84,6 +85,9 @@ public class TrimSqlNode implements SqlNode {
     }
 
     public void applyAll() {
+      if (delegate.isShapeOnly()) {
+        return;
+      }
       sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
       String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
       if (trimmedUppercaseSql.length() > 0) {
@@ -108,9 +112,36 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public void recordShape(Object decision) {
+      delegate.recordShape(decision);
+    }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
+    @Override
+    public CacheKey getShape() {
+      return delegate.getShape();
+    }
+
+    @Override
+    public int splitIntoChunks(int chunkCount) {
+      return delegate.splitIntoChunks(chunkCount);
+    }
+
+    @Override
+    public int getChunkCount() {
+      return delegate.getChunkCount();
+    }
+
     @Override
     public void appendSql(String sql) {
-      sqlBuffer.append(sql);
+      if (!delegate.isShapeOnly()) {
+        sqlBuffer.append(sql);
+      }
     }
 
     @Override
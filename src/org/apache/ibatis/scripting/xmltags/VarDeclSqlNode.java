@@ -21,16 +21,20 @@ package org.apache.ibatis.scripting.xmltags;
 public class VarDeclSqlNode implements SqlNode {
 
   private final String name;
-  private final String expression;
+  private final Expression expression;
 
   public VarDeclSqlNode(String var, String exp) {
+    this(var, new OgnlExpressionCompiler().compile(exp));
+  }
+
+  public VarDeclSqlNode(String var, Expression exp) {
     name = var;
     expression = exp;
   }
 
   @Override
   public boolean apply(DynamicContext context) {
-    final Object value = OgnlCache.getValue(expression, context.getBindings());
+    final Object value = expression.getValue(context.getBindings());
     context.bind(name, value);
     return true;
   }
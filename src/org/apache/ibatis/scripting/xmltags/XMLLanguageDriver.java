@@ -40,10 +40,18 @@ public class XMLLanguageDriver implements LanguageDriver {
 
   @Override
   public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
-    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script, parameterType);
+    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script, parameterType, createExpressionCompiler(configuration));
     return builder.parseScriptNode();
   }
 
+  /**
+   * Compiles the <code>test</code> and <code>value</code> expressions of the dynamic tags.
+   * Override to return an {@link OgnlExpressionCompiler} to have OGNL evaluate every expression.
+   */
+  protected ExpressionCompiler createExpressionCompiler(Configuration configuration) {
+    return new AccessorExpressionCompiler(configuration.getReflectorFactory());
+  }
+
   @Override
   public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterType) {
     // issue #3
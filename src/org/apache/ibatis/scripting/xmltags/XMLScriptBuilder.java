@@ -37,15 +37,21 @@ public class XMLScriptBuilder extends BaseBuilder {
   private XNode context;
   private boolean isDynamic;
   private Class<?> parameterType;
+  private ExpressionCompiler expressionCompiler;
 
   public XMLScriptBuilder(Configuration configuration, XNode context) {
     this(configuration, context, null);
   }
 
   public XMLScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType) {
+    this(configuration, context, parameterType, new OgnlExpressionCompiler());
+  }
+
+  public XMLScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType, ExpressionCompiler expressionCompiler) {
     super(configuration);
     this.context = context;
     this.parameterType = parameterType;
+    this.expressionCompiler = expressionCompiler;
   }
 
   public SqlSource parseScriptNode() {
@@ -114,7 +120,7 @@ public class XMLScriptBuilder extends BaseBuilder {
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       final String name = nodeToHandle.getStringAttribute("name");
       final String expression = nodeToHandle.getStringAttribute("value");
-      final VarDeclSqlNode node = new VarDeclSqlNode(name, expression);
+      final VarDeclSqlNode node = new VarDeclSqlNode(name, expressionCompiler.compile(expression));
       targetContents.add(node);
     }
   }
@@ -180,7 +186,9 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      boolean bucketed = nodeToHandle.getBooleanAttribute("bucketed", false);
+      int maxBucketSize = nodeToHandle.getIntAttribute("maxBucketSize", 0);
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, bucketed, maxBucketSize);
       targetContents.add(forEachSqlNode);
     }
   }
@@ -195,7 +203,7 @@ public class XMLScriptBuilder extends BaseBuilder {
       List<SqlNode> contents = parseDynamicTags(nodeToHandle);
       MixedSqlNode mixedSqlNode = new MixedSqlNode(contents);
       String test = nodeToHandle.getStringAttribute("test");
-      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
+      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, expressionCompiler.compile(test));
       targetContents.add(ifSqlNode);
     }
   }
@@ -31,17 +31,28 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableVersions;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.codec.BinaryCacheCodec;
+import org.apache.ibatis.cache.codec.JdkCacheCodec;
+import org.apache.ibatis.cache.decorators.CacheMemoryBudget;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.MemoryBoundedCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchFlushPolicy;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.MultiRowInsertDialect;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -51,6 +62,7 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.resultset.RowMapperCompiler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
@@ -106,17 +118,29 @@ public class Configuration {
   protected boolean useGeneratedKeys = false;//是否使用JDBC的getGenereatedKeys方法获取主键并赋值到keyProperty设置的属性，默认false
   protected boolean useColumnLabel = true;	//是否使用列标签(别名)代替列名(pojo的属性名),默认true
   protected boolean cacheEnabled = true;	//settings标签中的二级缓存配置，默认为true
+  protected long cacheMaximumBytes = 0;	//所有MEMORY淘汰策略的二级缓存共享的估算字节上限,超出时从最大的缓存淘汰,设置后未指定eviction的缓存默认使用MEMORY,默认0(不限制)
+  protected boolean cacheTableInvalidation = false;	//二级缓存是否按语句涉及的表失效(写操作只失效依赖这些表的缓存结果,跨命名空间),默认false(写操作清空整个命名空间)
   protected boolean callSettersOnNulls = false;	////resultType="map"时，是否将没有值的key放入map中,默认不放
+  protected boolean useCompiledRowMappers = false;	//是否将简单的结果映射编译为字节码(javassist)直接调用setter,默认false
 
   protected String logPrefix;	//指定 MyBatis 增加到日志名称的前缀,默认不设置
   protected Class <? extends Log> logImpl;	//指定 MyBatis 所用日志的具体实现，未指定时将自动查找
   protected Class <? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;	////本地缓存机制,默认为session(会话中),另有statement
+  protected int localCacheSize = 0;	//本地缓存最多保留的查询结果数,超出时淘汰,默认0(不限制)
+  protected long localCacheMaximumWeight = 0;	//本地缓存按localCacheWeigher计算的总权重上限,默认0(不限制)
+  protected Class<? extends Weigher> localCacheWeigher;	//计算本地缓存条目权重的Weigher,与localCacheMaximumWeight同时配置
+  protected Class<? extends Cache> localCacheImpl;	//本地缓存的实现类,默认null(不限制时为PerpetualCache,有上限时为TinyLfuCache)
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;	//当没有为参数提供特定的 JDBC 类型时，为空值指定 JDBC 类型
   //指定触发延迟加载的对象的方法(另有get，set ,is)
   protected Set<String> lazyLoadTriggerMethods = new HashSet<String>(Arrays.asList(new String[] { "equals", "clone", "hashCode", "toString" }));
   protected Integer defaultStatementTimeout;	//设置数据库回应超时时间，默认null，单位：秒
   protected Integer defaultFetchSize;		//每次批量返回的结果行数,默认null(驱动自行处理)。
+  protected boolean batchStatementGrouping = false;	//BATCH执行器是否为每条不同的SQL保留一个PreparedStatement(非连续的相同语句也合并到同一批),默认false
+  protected BatchFlushPolicy batchFlushPolicy = BatchFlushPolicy.NONE;	//BATCH执行器按行数、估算字节数或时间自动提交批次,默认不自动提交
+  protected MultiRowInsertDialect multiRowInsertDialect;	//BATCH执行器将同一语句的多条单行INSERT合并为一条多行VALUES语句的方言,默认null(不合并)
+  protected int foreachMaxBucketSize = 1000;	//bucketed="true"的foreach每条语句最多绑定的元素数,超出时拆分为多条语句执行后合并结果
+  protected int dynamicSqlPlanCacheSize = 0;	//每个动态SQL按分支形态缓存的解析结果数量上限,默认0(不缓存)
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;	//执行器类型,默认为SIMPLE
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;	//声明对象时设置自动映射的默认值(XMLConfigBuilder的settingsElement方法会重新设置默认值)
 
@@ -125,8 +149,11 @@ public class Configuration {
   protected ObjectFactory objectFactory = new DefaultObjectFactory();
   protected ObjectWrapperFactory objectWrapperFactory = new DefaultObjectWrapperFactory();
   protected MapperRegistry mapperRegistry = new MapperRegistry(this);
+  protected final CacheMemoryBudget cacheMemoryBudget = new CacheMemoryBudget();	//MEMORY淘汰策略的二级缓存共享的字节预算及淘汰统计
+  protected final TableVersions tableVersions = new TableVersions();	//cacheTableInvalidation开启时,所有二级缓存共享的表版本号
 
   protected boolean lazyLoadingEnabled = false;	//是否懒加载，默认false
+  protected boolean lazyLoadSiblings = false;	//懒加载某个对象的属性时，是否同时加载同一结果集中其它对象的该属性,默认false
   protected ProxyFactory proxyFactory = new JavassistProxyFactory(); // #224 Using internal Javassist instead of OGNL：使用内部的Javassist代替OGNL
 
   protected String databaseId;
@@ -142,6 +169,7 @@ public class Configuration {
   protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  protected final RowMapperCompiler rowMapperCompiler = new RowMapperCompiler(this);
 
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
   protected final Map<String, Cache> caches = new StrictMap<Cache>("Caches collection");
@@ -180,6 +208,7 @@ public class Configuration {
     //数据源工厂别名
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("POOLED_CONCURRENT", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
@@ -187,6 +216,11 @@ public class Configuration {
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("MEMORY", MemoryBoundedCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
+    typeAliasRegistry.registerAlias("JDK", JdkCacheCodec.class);
+    typeAliasRegistry.registerAlias("BINARY", BinaryCacheCodec.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -248,6 +282,58 @@ public class Configuration {
     this.callSettersOnNulls = callSettersOnNulls;
   }
 
+  public boolean isUseCompiledRowMappers() {
+    return useCompiledRowMappers;
+  }
+
+  public void setUseCompiledRowMappers(boolean useCompiledRowMappers) {
+    this.useCompiledRowMappers = useCompiledRowMappers;
+  }
+
+  public boolean isBatchStatementGrouping() {
+    return batchStatementGrouping;
+  }
+
+  public void setBatchStatementGrouping(boolean batchStatementGrouping) {
+    this.batchStatementGrouping = batchStatementGrouping;
+  }
+
+  public BatchFlushPolicy getBatchFlushPolicy() {
+    return batchFlushPolicy;
+  }
+
+  public void setBatchFlushPolicy(BatchFlushPolicy batchFlushPolicy) {
+    this.batchFlushPolicy = batchFlushPolicy == null ? BatchFlushPolicy.NONE : batchFlushPolicy;
+  }
+
+  public MultiRowInsertDialect getMultiRowInsertDialect() {
+    return multiRowInsertDialect;
+  }
+
+  public void setMultiRowInsertDialect(MultiRowInsertDialect multiRowInsertDialect) {
+    this.multiRowInsertDialect = multiRowInsertDialect;
+  }
+
+  public int getForeachMaxBucketSize() {
+    return foreachMaxBucketSize;
+  }
+
+  public void setForeachMaxBucketSize(int foreachMaxBucketSize) {
+    this.foreachMaxBucketSize = foreachMaxBucketSize;
+  }
+
+  public int getDynamicSqlPlanCacheSize() {
+    return dynamicSqlPlanCacheSize;
+  }
+
+  public void setDynamicSqlPlanCacheSize(int dynamicSqlPlanCacheSize) {
+    this.dynamicSqlPlanCacheSize = dynamicSqlPlanCacheSize;
+  }
+
+  public RowMapperCompiler getRowMapperCompiler() {
+    return rowMapperCompiler;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -337,6 +423,14 @@ public class Configuration {
     this.proxyFactory = proxyFactory;
   }
 
+  public boolean isLazyLoadSiblings() {
+    return lazyLoadSiblings;
+  }
+
+  public void setLazyLoadSiblings(boolean lazyLoadSiblings) {
+    this.lazyLoadSiblings = lazyLoadSiblings;
+  }
+
   public boolean isAggressiveLazyLoading() {
     return aggressiveLazyLoading;
   }
@@ -385,6 +479,31 @@ public class Configuration {
     this.cacheEnabled = cacheEnabled;
   }
 
+  public long getCacheMaximumBytes() {
+    return cacheMaximumBytes;
+  }
+
+  public void setCacheMaximumBytes(long cacheMaximumBytes) {
+    this.cacheMaximumBytes = cacheMaximumBytes;
+    cacheMemoryBudget.setMaximumBytes(cacheMaximumBytes);
+  }
+
+  public CacheMemoryBudget getCacheMemoryBudget() {
+    return cacheMemoryBudget;
+  }
+
+  public boolean isCacheTableInvalidation() {
+    return cacheTableInvalidation;
+  }
+
+  public void setCacheTableInvalidation(boolean cacheTableInvalidation) {
+    this.cacheTableInvalidation = cacheTableInvalidation;
+  }
+
+  public TableVersions getTableVersions() {
+    return tableVersions;
+  }
+
   public Integer getDefaultStatementTimeout() {
     return defaultStatementTimeout;
   }
@@ -417,6 +536,38 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  public void setLocalCacheSize(int localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  public long getLocalCacheMaximumWeight() {
+    return localCacheMaximumWeight;
+  }
+
+  public void setLocalCacheMaximumWeight(long localCacheMaximumWeight) {
+    this.localCacheMaximumWeight = localCacheMaximumWeight;
+  }
+
+  public Class<? extends Weigher> getLocalCacheWeigher() {
+    return localCacheWeigher;
+  }
+
+  public void setLocalCacheWeigher(Class<? extends Weigher> localCacheWeigher) {
+    this.localCacheWeigher = localCacheWeigher;
+  }
+
+  public Class<? extends Cache> getLocalCacheImpl() {
+    return localCacheImpl;
+  }
+
+  public void setLocalCacheImpl(Class<? extends Cache> localCacheImpl) {
+    this.localCacheImpl = localCacheImpl;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -522,18 +673,22 @@ public class Configuration {
   }
 
   public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+    return newExecutor(transaction, executorType, batchFlushPolicy);
+  }
+
+  public Executor newExecutor(Transaction transaction, ExecutorType executorType, BatchFlushPolicy batchFlushPolicy) {
     executorType = executorType == null ? defaultExecutorType : executorType;
     executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
     Executor executor;
     if (ExecutorType.BATCH == executorType) {
-      executor = new BatchExecutor(this, transaction);
+      executor = new BatchExecutor(this, transaction, batchFlushPolicy);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
       executor = new SimpleExecutor(this, transaction);
     }
     if (cacheEnabled) {
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, cacheTableInvalidation ? tableVersions : null);
     }
     executor = (Executor) interceptorChain.pluginAll(executor);
     return executor;
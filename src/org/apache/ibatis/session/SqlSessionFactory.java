@@ -17,6 +17,8 @@ package org.apache.ibatis.session;
 
 import java.sql.Connection;
 
+import org.apache.ibatis.executor.BatchFlushPolicy;
+
 /**
  * Creates an {@link SqlSesion} out of a connection or a DataSource
  * 
@@ -34,6 +36,7 @@ public interface SqlSessionFactory {
   SqlSession openSession(ExecutorType execType, boolean autoCommit);
   SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level);
   SqlSession openSession(ExecutorType execType, Connection connection);
+  SqlSession openSession(ExecutorType execType, BatchFlushPolicy batchFlushPolicy);
 
   Configuration getConfiguration();
 
@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchFlushPolicy;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -150,6 +152,11 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionFactory.openSession(execType, connection);
   }
 
+  @Override
+  public SqlSession openSession(ExecutorType execType, BatchFlushPolicy batchFlushPolicy) {
+    return sqlSessionFactory.openSession(execType, batchFlushPolicy);
+  }
+
   @Override
   public Configuration getConfiguration() {
     return sqlSessionFactory.getConfiguration();
@@ -180,6 +187,21 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.<K, V> selectMap(statement, parameter, mapKey, rowBounds);
   }
 
+  @Override
+  public <T> Cursor<T> selectCursor(String statement) {
+    return sqlSessionProxy.selectCursor(statement);
+  }
+
+  @Override
+  public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+    return sqlSessionProxy.selectCursor(statement, parameter);
+  }
+
+  @Override
+  public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+    return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
+  }
+
   @Override
   public <E> List<E> selectList(String statement) {
     return sqlSessionProxy.<E> selectList(statement);
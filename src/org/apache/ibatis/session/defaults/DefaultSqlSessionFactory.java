@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 
 import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.BatchFlushPolicy;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.Environment;
@@ -44,32 +45,32 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
 
   @Override
   public SqlSession openSession() {
-    return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, false);
+    return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, false, configuration.getBatchFlushPolicy());
   }
 
   @Override
   public SqlSession openSession(boolean autoCommit) {
-    return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, autoCommit);
+    return openSessionFromDataSource(configuration.getDefaultExecutorType(), null, autoCommit, configuration.getBatchFlushPolicy());
   }
 
   @Override
   public SqlSession openSession(ExecutorType execType) {
-    return openSessionFromDataSource(execType, null, false);
+    return openSessionFromDataSource(execType, null, false, configuration.getBatchFlushPolicy());
   }
 
   @Override
   public SqlSession openSession(TransactionIsolationLevel level) {
-    return openSessionFromDataSource(configuration.getDefaultExecutorType(), level, false);
+    return openSessionFromDataSource(configuration.getDefaultExecutorType(), level, false, configuration.getBatchFlushPolicy());
   }
 
   @Override
   public SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level) {
-    return openSessionFromDataSource(execType, level, false);
+    return openSessionFromDataSource(execType, level, false, configuration.getBatchFlushPolicy());
   }
 
   @Override
   public SqlSession openSession(ExecutorType execType, boolean autoCommit) {
-    return openSessionFromDataSource(execType, null, autoCommit);
+    return openSessionFromDataSource(execType, null, autoCommit, configuration.getBatchFlushPolicy());
   }
 
   @Override
@@ -82,18 +83,23 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     return openSessionFromConnection(execType, connection);
   }
 
+  @Override
+  public SqlSession openSession(ExecutorType execType, BatchFlushPolicy batchFlushPolicy) {
+    return openSessionFromDataSource(execType, null, false, batchFlushPolicy);
+  }
+
   @Override
   public Configuration getConfiguration() {
     return configuration;
   }
 
-  private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
+  private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit, BatchFlushPolicy batchFlushPolicy) {
     Transaction tx = null;
     try {
       final Environment environment = configuration.getEnvironment();
       final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
       tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
-      final Executor executor = configuration.newExecutor(tx, execType);
+      final Executor executor = configuration.newExecutor(tx, execType, batchFlushPolicy);
       return new DefaultSqlSession(configuration, executor, autoCommit);
     } catch (Exception e) {
       closeTransaction(tx); // may have fetched a connection so lets call close()